@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+/**
+ * Benchmark dei percorsi critici dell'applicazione: caricamento dei dati, caricamento dei colli nei veicoli,
+ * tracciamento e avanzamento dello stato dei colli.
+ *
+ * <p>
+ * I dati vengono prodotti da {@link GeneratoreManifest} in un file temporaneo. Le dimensioni si configurano
+ * con le proprietà di sistema {@code benchmark.corrieri}, {@code benchmark.veicoli} (per corriere),
+ * {@code benchmark.colli} (per corriere), {@code benchmark.destinatari}, {@code benchmark.riscaldamento},
+ * {@code benchmark.iterazioni} e {@code benchmark.hit} (frazione di tracciamenti che trovano il collo).
+ * Al termine il {@link ServerTracciamento} viene messo sotto carico con {@link CaricoServerTracciamento} e vengono
+ * stampate le {@link Metriche} raccolte durante l'esecuzione. Con {@code -Dlogistica.metriche=false} si misurano
+ * i percorsi senza strumentazione, per valutarne il costo.
+ * </p>
+ *
+ * <p>Esecuzione: {@code mvn -Pbenchmark verify}</p>
+ */
+public class BenchmarkLogistica {
+    private static final int CORRIERI = Integer.getInteger("benchmark.corrieri", 4);
+    private static final int VEICOLI = Integer.getInteger("benchmark.veicoli", 10_000);
+    private static final int COLLI = Integer.getInteger("benchmark.colli", 50_000);
+    private static final int DESTINATARI = Integer.getInteger("benchmark.destinatari", 10_000);
+    private static final int TRACCIAMENTI = 1_000_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Misuratore misuratore = new Misuratore(Integer.getInteger("benchmark.riscaldamento", 3),
+                Integer.getInteger("benchmark.iterazioni", 5));
+        Path manifest = Files.createTempFile("DatiLogistica", ".txt");
+        try {
+            new GeneratoreManifest(CORRIERI, VEICOLI, COLLI, DESTINATARI, 42).scrivi(manifest);
+            System.out.printf("Manifest: %d corrieri, %d veicoli e %d colli per corriere, %d destinatari (%d KB)%n%n",
+                    CORRIERI, VEICOLI, COLLI, DESTINATARI, Files.size(manifest) / 1024);
+
+            long righe = (long) CORRIERI * (1 + VEICOLI + COLLI) + DESTINATARI;
+            misuratore.misura("FileManager.caricaDatiDaFile", righe,
+                    () -> new FileManager(manifest.toString(), new CentroDiSmistamento()), FileManager::caricaDatiDaFile);
+            misuratore.misura("FileManager.caricaDatiDaFileParallelo", righe,
+                    () -> new FileManager(manifest.toString(), new CentroDiSmistamento()), FileManager::caricaDatiDaFileParallelo);
+
+            misuraCaricamento(misuratore, "NextFit", NextFit::new);
+            misuraCaricamento(misuratore, "FirstFitDecrescente", FirstFitDecrescente::new);
+            misuraCaricamento(misuratore, "BestFitDecrescente", BestFitDecrescente::new);
+            misuraAccept(misuratore);
+
+            FileManager fileManager = new FileManager(manifest.toString(), new CentroDiSmistamento());
+            fileManager.caricaDatiDaFileParallelo();
+            misuraTracciamento(misuratore, fileManager, 1.0);
+            misuraTracciamento(misuratore, fileManager, Double.parseDouble(System.getProperty("benchmark.hit", "0.5")));
+            misuraTracciamento(misuratore, fileManager, 0.0);
+            misuraTracciamentoMultiplo(misuratore, fileManager, Integer.getInteger("benchmark.lotto", 50));
+            misuraAvanzamento(misuratore, fileManager);
+            new CaricoServerTracciamento(Integer.getInteger("benchmark.client", 256), Integer.getInteger("benchmark.richieste", 200),
+                    Integer.getInteger("benchmark.lotto", 50)).esegui(fileManager, DESTINATARI);
+            if (Metriche.ABILITATE) {
+                System.out.printf("%nMetriche%n%s", Metriche.getInstance());
+            }
+        } finally {
+            Files.deleteIfExists(manifest);
+        }
+        System.exit(0);
+    }
+
+    private static void misuraCaricamento(Misuratore misuratore, String nome, Supplier<StrategiaCaricamento> strategia) {
+        Destinatario destinatario = new Destinatario("Nome", "Cognome", "Via Roma", "benchmark@esempio.it", "pwd", new CentroDiSmistamento());
+        Corriere[] ultimo = new Corriere[1];
+        misuratore.misura("Corriere.CaricaColli " + nome, COLLI, () -> {
+            Random random = new Random(42);
+            Corriere corriere = new Corriere("BENCHMARK");
+            corriere.setStrategiaCaricamento(strategia.get());
+            for (int v = 0; v < VEICOLI; v++) {
+                corriere.aggiungiVeicolo(new Veicolo("V" + v, TipoVeicolo.CAMION, 300 + random.nextInt(1200), corriere));
+            }
+            for (int k = 0; k < COLLI; k++) {
+                corriere.aggiungiCollo(new Collo("C" + k, "Mittente", destinatario, 1 + random.nextInt(400), "S" + k));
+            }
+            ultimo[0] = corriere;
+            return corriere;
+        }, Corriere::CaricaColli);
+        System.out.printf("%-44s %s%n", "", ultimo[0].getUltimoRisultatoCaricamento());
+    }
+
+    private static void misuraAccept(Misuratore misuratore) {
+        Destinatario destinatario = new Destinatario("Nome", "Cognome", "Via Roma", "benchmark@esempio.it", "pwd", new CentroDiSmistamento());
+        misuratore.misura("Corriere.accept", COLLI, () -> {
+            Random random = new Random(42);
+            Corriere corriere = new Corriere("BENCHMARK");
+            for (int v = 0; v < VEICOLI; v++) {
+                corriere.aggiungiVeicolo(new Veicolo("V" + v, TipoVeicolo.CAMION, 300 + random.nextInt(1200), corriere));
+            }
+            List<Collo> colli = new ArrayList<>(COLLI);
+            for (int k = 0; k < COLLI; k++) {
+                colli.add(new Collo("C" + k, "Mittente", destinatario, 1 + random.nextInt(400), "S" + k));
+            }
+            return new Object[]{corriere, colli};
+        }, stato -> {
+            Corriere corriere = (Corriere) stato[0];
+            @SuppressWarnings("unchecked")
+            List<Collo> colli = (List<Collo>) stato[1];
+            for (Collo c : colli) {
+                corriere.accept(c);
+            }
+        });
+    }
+
+    private static void misuraTracciamento(Misuratore misuratore, FileManager fileManager, double frazioneTrovati) {
+        List<Collo> colli = new ArrayList<>();
+        for (Destinatario d : fileManager.getDestinatarioMap().values()) {
+            colli.addAll(d.getColliAssociati());
+        }
+        Random random = new Random(42);
+        int richieste = 1 << 16;
+        Destinatario[] destinatari = new Destinatario[richieste];
+        String[] codici = new String[richieste];
+        for (int i = 0; i < richieste; i++) {
+            Collo collo = colli.get(random.nextInt(colli.size()));
+            destinatari[i] = collo.getDestinatario();
+            codici[i] = random.nextDouble() < frazioneTrovati ? collo.getCodiceSpedizione() : "X" + random.nextInt();
+        }
+        misuratore.misura(String.format("CentroDiSmistamento.tracciaCollo hit %.0f%%", frazioneTrovati * 100), TRACCIAMENTI, () -> null, nessuno -> {
+            long lunghezze = 0;
+            for (int i = 0; i < TRACCIAMENTI; i++) {
+                int r = i & (richieste - 1);
+                lunghezze += destinatari[r].tracciaCollo(codici[r]).length();
+            }
+            Misuratore.consuma(lunghezze);
+        });
+    }
+
+    private static void misuraTracciamentoMultiplo(Misuratore misuratore, FileManager fileManager, int codiciPerLotto) {
+        List<Destinatario> destinatari = new ArrayList<>();
+        for (Destinatario d : fileManager.getDestinatarioMap().values()) {
+            if (!d.getColliAssociati().isEmpty()) {
+                destinatari.add(d);
+            }
+        }
+        Random random = new Random(42);
+        int lotti = 1 << 12;
+        Destinatario[] richiedenti = new Destinatario[lotti];
+        List<List<String>> codici = new ArrayList<>(lotti);
+        for (int i = 0; i < lotti; i++) {
+            richiedenti[i] = destinatari.get(random.nextInt(destinatari.size()));
+            List<Collo> colli = richiedenti[i].getColliAssociati();
+            List<String> lotto = new ArrayList<>(codiciPerLotto);
+            for (int k = 0; k < codiciPerLotto; k++) {
+                lotto.add(colli.get(random.nextInt(colli.size())).getCodiceSpedizione());
+            }
+            codici.add(lotto);
+        }
+        int ripetizioni = TRACCIAMENTI / codiciPerLotto;
+        misuratore.misura("Destinatario.tracciaCollo x " + codiciPerLotto, (long) ripetizioni * codiciPerLotto, () -> null, nessuno -> {
+            long lunghezze = 0;
+            for (int i = 0; i < ripetizioni; i++) {
+                int r = i & (lotti - 1);
+                for (String codice : codici.get(r)) {
+                    lunghezze += richiedenti[r].tracciaCollo(codice).length();
+                }
+            }
+            Misuratore.consuma(lunghezze);
+        });
+        misuratore.misura("Destinatario.tracciaColli lotti da " + codiciPerLotto, (long) ripetizioni * codiciPerLotto, () -> null, nessuno -> {
+            long dimensioni = 0;
+            for (int i = 0; i < ripetizioni; i++) {
+                int r = i & (lotti - 1);
+                dimensioni += richiedenti[r].tracciaColli(codici.get(r)).size();
+            }
+            Misuratore.consuma(dimensioni);
+        });
+    }
+
+    private static void misuraAvanzamento(Misuratore misuratore, FileManager fileManager) {
+        List<Collo> colli = new ArrayList<>();
+        for (Destinatario d : fileManager.getDestinatarioMap().values()) {
+            colli.addAll(d.getColliAssociati());
+        }
+        misuratore.misura("Avanzamento stato di tutti i colli", colli.size(), () -> {
+            for (Collo c : colli) {
+                c.setStato(Ritiro.ISTANZA);
+            }
+            return colli;
+        }, lista -> {
+            for (Collo c : lista) {
+                c.prossimoStato();
+            }
+        });
+    }
+}
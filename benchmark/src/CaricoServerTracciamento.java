@@ -0,0 +1,143 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+/**
+ * Generatore di carico per {@link ServerTracciamento}: avvia il server in locale e lo interroga con molti client
+ * contemporanei, misurando il throughput e la latenza delle richieste.
+ *
+ * <p>
+ * Ogni client effettua il login come uno dei destinatari del manifest prodotto da {@link GeneratoreManifest} e poi
+ * invia richieste di tracciamento dei colli di quel destinatario; una richiesta ogni dieci è un tracciamento
+ * multiplo di più codici. Le dimensioni si configurano con le proprietà di sistema {@code benchmark.client},
+ * {@code benchmark.richieste} (per client) e {@code benchmark.lotto} (codici per tracciamento multiplo).
+ * </p>
+ *
+ * @see BenchmarkLogistica
+ */
+public class CaricoServerTracciamento {
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([0-9a-f]+)\"");
+
+    private final int client;
+    private final int richiestePerClient;
+    private final int codiciPerLotto;
+
+    /**
+     * Crea un generatore di carico.
+     * @param client il numero di client contemporanei.
+     * @param richiestePerClient il numero di richieste inviate da ciascun client.
+     * @param codiciPerLotto il numero di codici di un tracciamento multiplo.
+     */
+    public CaricoServerTracciamento(int client, int richiestePerClient, int codiciPerLotto) {
+        this.client = client;
+        this.richiestePerClient = richiestePerClient;
+        this.codiciPerLotto = codiciPerLotto;
+    }
+
+    /**
+     * Avvia il server sui dati del {@link FileManager}, esegue il carico e stampa il risultato.
+     * @param fileManager il {@link FileManager} con i dati caricati da un manifest di {@link GeneratoreManifest}.
+     * @param destinatari il numero di destinatari del manifest.
+     * @throws IOException se il server non può essere avviato o una richiesta fallisce.
+     * @throws InterruptedException se l'attesa dei client viene interrotta.
+     */
+    public void esegui(FileManager fileManager, int destinatari) throws IOException, InterruptedException {
+        ServerTracciamento server = new ServerTracciamento(fileManager, ArchivioCredenziali.getInstance());
+        server.avvia(new InetSocketAddress("127.0.0.1", 0));
+        String base = "http://127.0.0.1:" + server.getPorta();
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        try {
+            List<Integer> indici = new ArrayList<>();
+            for (int d = 0; d < destinatari && indici.size() < client; d++) {
+                Destinatario destinatario = fileManager.getDestinatarioMap().get(GeneratoreManifest.email(d));
+                if (destinatario != null && !destinatario.getColliAssociati().isEmpty()) {
+                    indici.add(d);
+                }
+            }
+            if (indici.isEmpty()) {
+                System.out.println("Nessun destinatario con colli da tracciare");
+                return;
+            }
+
+            long inizioLogin = System.nanoTime();
+            String[] token = new String[indici.size()];
+            for (int i = 0; i < token.length; i++) {
+                int d = indici.get(i);
+                String corpo = "email=" + GeneratoreManifest.email(d) + "&password=" + GeneratoreManifest.password(d);
+                HttpResponse<String> risposta = http.send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                        .POST(HttpRequest.BodyPublishers.ofString(corpo)).build(), HttpResponse.BodyHandlers.ofString());
+                Matcher m = TOKEN.matcher(risposta.body());
+                if (risposta.statusCode() != 200 || !m.find()) {
+                    throw new IOException("Login fallito per " + GeneratoreManifest.email(d) + ": " + risposta.body());
+                }
+                token[i] = m.group(1);
+            }
+            System.out.printf("%-44s %d login in %.3f ms%n", "ServerTracciamento /login", token.length, (System.nanoTime() - inizioLogin) / 1e6);
+
+            long[][] latenze = new long[client][richiestePerClient];
+            AtomicLong errori = new AtomicLong();
+            CountDownLatch partenza = new CountDownLatch(1);
+            Thread[] thread = new Thread[client];
+            for (int c = 0; c < client; c++) {
+                int id = c;
+                Destinatario destinatario = fileManager.getDestinatarioMap().get(GeneratoreManifest.email(indici.get(c % indici.size())));
+                String autorizzazione = "Bearer " + token[c % token.length];
+                thread[c] = new Thread(() -> {
+                    Random random = new Random(id);
+                    List<Collo> colli = destinatario.getColliAssociati();
+                    try {
+                        partenza.await();
+                        for (int r = 0; r < richiestePerClient; r++) {
+                            HttpRequest.Builder richiesta;
+                            if (r % 10 == 9) {
+                                StringBuilder codici = new StringBuilder();
+                                for (int k = 0; k < codiciPerLotto; k++) {
+                                    codici.append(colli.get(random.nextInt(colli.size())).getCodiceSpedizione()).append('\n');
+                                }
+                                richiesta = HttpRequest.newBuilder(URI.create(base + "/traccia"))
+                                        .POST(HttpRequest.BodyPublishers.ofString(codici.toString()));
+                            } else {
+                                String codice = colli.get(random.nextInt(colli.size())).getCodiceSpedizione();
+                                richiesta = HttpRequest.newBuilder(URI.create(base + "/traccia?codice=" + codice));
+                            }
+                            long inizio = System.nanoTime();
+                            HttpResponse<String> risposta = http.send(richiesta.header("Authorization", autorizzazione).build(),
+                                    HttpResponse.BodyHandlers.ofString());
+                            latenze[id][r] = System.nanoTime() - inizio;
+                            if (risposta.statusCode() != 200) {
+                                errori.incrementAndGet();
+                            }
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        e.printStackTrace();
+                        errori.incrementAndGet();
+                    }
+                }, "client-" + c);
+                thread[c].start();
+            }
+            long inizio = System.nanoTime();
+            partenza.countDown();
+            for (Thread t : thread) {
+                t.join();
+            }
+            long durata = System.nanoTime() - inizio;
+
+            long[] tutte = Arrays.stream(latenze).flatMapToLong(Arrays::stream).sorted().toArray();
+            System.out.printf("%-44s %d client, %d richieste in %.3f ms  %14.0f richieste/s  p50 %.3f ms  p99 %.3f ms  errori %d%n",
+                    "ServerTracciamento /traccia", client, tutte.length, durata / 1e6, tutte.length * 1e9 / durata,
+                    tutte[tutte.length / 2] / 1e6, tutte[(int) (tutte.length * 0.99)] / 1e6, errori.get());
+        } finally {
+            server.shutdown(0);
+        }
+    }
+}
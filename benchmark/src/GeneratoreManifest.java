@@ -0,0 +1,96 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+/**
+ * Genera file di dati sintetici nello stesso formato di {@code resource/DatiLogistica.txt}.
+ *
+ * <p>
+ * Il file contiene prima tutti i destinatari e poi, per ogni corriere, i suoi veicoli e i suoi colli.
+ * Mittenti e destinatari vengono scelti da insiemi limitati, così che si ripetano come nei manifest reali.
+ * A parità di parametri e di seme il file generato è sempre lo stesso.
+ * </p>
+ *
+ * <p>Utilizzo: {@code java GeneratoreManifest <file> <corrieri> <veicoliPerCorriere> <colliPerCorriere> <destinatari>}</p>
+ */
+public class GeneratoreManifest {
+    private static final TipoVeicolo[] TIPI = TipoVeicolo.values();
+    private static final int MITTENTI = 500;
+
+    private final int corrieri;
+    private final int veicoliPerCorriere;
+    private final int colliPerCorriere;
+    private final int destinatari;
+    private final long seme;
+
+    /**
+     * Crea un nuovo generatore.
+     * @param corrieri il numero di corrieri.
+     * @param veicoliPerCorriere il numero di veicoli di ogni corriere.
+     * @param colliPerCorriere il numero di colli di ogni corriere.
+     * @param destinatari il numero di destinatari distinti.
+     * @param seme il seme del generatore pseudo-casuale.
+     */
+    public GeneratoreManifest(int corrieri, int veicoliPerCorriere, int colliPerCorriere, int destinatari, long seme) {
+        this.corrieri = corrieri;
+        this.veicoliPerCorriere = veicoliPerCorriere;
+        this.colliPerCorriere = colliPerCorriere;
+        this.destinatari = destinatari;
+        this.seme = seme;
+    }
+
+    /**
+     * Scrive il manifest nel file indicato.
+     * @param file il file da scrivere.
+     * @throws IOException se il file non può essere scritto.
+     */
+    public void scrivi(Path file) throws IOException {
+        Random random = new Random(seme);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int d = 0; d < destinatari; d++) {
+                out.write("destinatario,Nome" + d + ",Cognome" + d + ",Via Roma " + d + "," + email(d) + "," + password(d));
+                out.newLine();
+            }
+            long codiceSpedizione = 10_000_000L;
+            for (int c = 0; c < corrieri; c++) {
+                String corriere = "CORRIERE" + c;
+                out.write("corriere," + corriere);
+                out.newLine();
+                for (int v = 0; v < veicoliPerCorriere; v++) {
+                    out.write("veicolo," + corriere + "V" + v + "," + TIPI[random.nextInt(TIPI.length)] + "," + (300 + random.nextInt(1200)) + "," + corriere);
+                    out.newLine();
+                }
+                for (int k = 0; k < colliPerCorriere; k++) {
+                    out.write("collo," + corriere + "C" + k + ",Mittente" + random.nextInt(MITTENTI) + "," + email(random.nextInt(destinatari))
+                            + "," + (1 + random.nextInt(400)) + "," + codiceSpedizione++);
+                    out.newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * Restituisce l'email del destinatario con l'indice indicato.
+     * @param indice l'indice del destinatario.
+     * @return l'email del destinatario.
+     */
+    public static String email(int indice) {
+        return "destinatario" + indice + "@esempio.it";
+    }
+
+    /**
+     * Restituisce la password del destinatario con l'indice indicato.
+     * @param indice l'indice del destinatario.
+     * @return la password del destinatario.
+     */
+    public static String password(int indice) {
+        return "pwd" + indice;
+    }
+
+    public static void main(String[] args) throws IOException {
+        new GeneratoreManifest(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                Integer.parseInt(args[4]), 42).scrivi(Path.of(args[0]));
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+/**
+ * Esegue e misura un'operazione ripetuta, scartando le prime iterazioni di riscaldamento della JVM.
+ *
+ * <p>
+ * Ogni iterazione prepara i propri dati con una funzione che non viene cronometrata, poi esegue l'operazione
+ * misurandone la durata. Al termine riporta la durata media, minima e mediana di un'iterazione e il numero
+ * di operazioni al secondo.
+ * </p>
+ */
+public class Misuratore {
+    private static volatile long pozzo; //impedisce alla JVM di eliminare i risultati non utilizzati
+
+    private final int riscaldamento;
+    private final int iterazioni;
+
+    /**
+     * Crea un nuovo misuratore.
+     * @param riscaldamento il numero di iterazioni eseguite senza essere misurate.
+     * @param iterazioni il numero di iterazioni misurate.
+     */
+    public Misuratore(int riscaldamento, int iterazioni) {
+        this.riscaldamento = riscaldamento;
+        this.iterazioni = iterazioni;
+    }
+
+    /**
+     * Misura un'operazione e stampa il risultato.
+     * @param nome il nome del benchmark.
+     * @param operazioniPerIterazione quante operazioni logiche esegue un'iterazione, per calcolare il throughput.
+     * @param preparazione prepara i dati di un'iterazione, senza essere cronometrata.
+     * @param operazione l'operazione da misurare.
+     * @param <T> il tipo dei dati preparati.
+     * @return la durata mediana di un'iterazione in nanosecondi.
+     */
+    public <T> long misura(String nome, long operazioniPerIterazione, Supplier<T> preparazione, Consumer<T> operazione) {
+        for (int i = 0; i < riscaldamento; i++) {
+            operazione.accept(preparazione.get());
+        }
+        long[] durate = new long[iterazioni];
+        for (int i = 0; i < iterazioni; i++) {
+            T dati = preparazione.get();
+            long inizio = System.nanoTime();
+            operazione.accept(dati);
+            durate[i] = System.nanoTime() - inizio;
+        }
+        Arrays.sort(durate);
+        long mediana = durate[durate.length / 2];
+        double media = Arrays.stream(durate).average().orElse(0);
+        System.out.printf("%-44s media %10.3f ms  min %10.3f ms  mediana %10.3f ms  %14.0f op/s%n",
+                nome, media / 1e6, durate[0] / 1e6, mediana / 1e6, operazioniPerIterazione * 1e9 / mediana);
+        return mediana;
+    }
+
+    /**
+     * Consuma un valore così che il calcolo che lo produce non venga eliminato dal compilatore JIT.
+     * @param valore il valore da consumare.
+     */
+    public static void consuma(long valore) {
+        pozzo += valore;
+    }
+}
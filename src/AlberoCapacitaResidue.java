@@ -0,0 +1,66 @@
+import java.util.Arrays;
+import java.util.List;
+/**
+ * Segment tree sulle capacità residue di una lista di veicoli.
+ *
+ * <p>
+ * Ogni nodo interno contiene la massima capacità residua dei veicoli del suo sottoalbero, così che la
+ * ricerca del primo veicolo (nell'ordine della lista) in grado di contenere un certo peso e l'aggiornamento
+ * della capacità residua di un veicolo costino entrambi O(log n).
+ * </p>
+ *
+ * @see FirstFitDecrescente
+ */
+public class AlberoCapacitaResidue {
+    private final int foglie; //potenza di due maggiore o uguale al numero di veicoli
+    private final int[] massimi;
+
+    /**
+     * Costruisce l'albero a partire dalla capacità residua corrente dei veicoli forniti.
+     * @param veicoli i veicoli da indicizzare, nell'ordine in cui devono essere considerati.
+     */
+    public AlberoCapacitaResidue(List<Veicolo> veicoli) {
+        int n = 1;
+        while (n < veicoli.size()) {
+            n <<= 1;
+        }
+        this.foglie = n;
+        this.massimi = new int[2 * n];
+        Arrays.fill(massimi, Integer.MIN_VALUE);
+        for (int i = 0; i < veicoli.size(); i++) {
+            massimi[n + i] = veicoli.get(i).getCapacitaResidua();
+        }
+        for (int i = n - 1; i > 0; i--) {
+            massimi[i] = Math.max(massimi[2 * i], massimi[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Restituisce l'indice del primo veicolo con capacità residua almeno pari al peso indicato.
+     * @param peso il peso da inserire.
+     * @return l'indice del veicolo nella lista, oppure -1 se nessun veicolo può contenere il peso.
+     */
+    public int primoCapiente(int peso) {
+        if (massimi[1] < peso) {
+            return -1;
+        }
+        int nodo = 1;
+        while (nodo < foglie) {
+            nodo = massimi[2 * nodo] >= peso ? 2 * nodo : 2 * nodo + 1;
+        }
+        return nodo - foglie;
+    }
+
+    /**
+     * Aggiorna la capacità residua di un veicolo.
+     * @param indice l'indice del veicolo nella lista.
+     * @param capacitaResidua la nuova capacità residua.
+     */
+    public void aggiorna(int indice, int capacitaResidua) {
+        int nodo = foglie + indice;
+        massimi[nodo] = capacitaResidua;
+        for (nodo >>= 1; nodo > 0; nodo >>= 1) {
+            massimi[nodo] = Math.max(massimi[2 * nodo], massimi[2 * nodo + 1]);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+/**
+ * La classe {@code ArchivioCredenziali} verifica le credenziali dei {@link Destinatario} senza bloccare
+ * l'interfaccia grafica.
+ *
+ * <p>
+ * Il calcolo dell'hash di una {@link Credenziale} è volutamente costoso, per cui le verifiche vengono eseguite
+ * da un pool di thread di dimensione limitata con una coda limitata: un picco di accessi non occupa più di
+ * metà dei core e le richieste oltre la capacità della coda vengono rifiutate invece di accumularsi.
+ * </p>
+ *
+ * <p>
+ * Ogni accesso con la password ricalcola l'hash costoso, confrontato in tempo costante. Dopo una verifica
+ * riuscita il destinatario riceve un token casuale di sessione, che non deriva dalla password: le richieste
+ * successive presentano il token invece della password e vengono riconosciute senza ricalcolare l'hash, finché
+ * la sessione non scade. La durata della sessione si configura con la proprietà di sistema
+ * {@code logistica.credenziali.sessione} (millisecondi, default 5 minuti).
+ * </p>
+ *
+ * @see LoginScreenGUI
+ */
+public class ArchivioCredenziali {
+    private static final long DURATA_SESSIONE_MS = Long.getLong("logistica.credenziali.sessione", 5 * 60_000L);
+    private static final SecureRandom CASUALE = new SecureRandom();
+
+    private final ThreadPoolExecutor verificatori;
+    private final Map<String, Sessione> sessioni; //token
+    private final Credenziale fittizia; //verificata per le email sconosciute, così che il tempo di risposta non le riveli
+
+    /**
+     * Crea un archivio che verifica le credenziali con il numero di thread indicato.
+     * @param thread il numero massimo di verifiche eseguite in parallelo.
+     * @param coda il numero massimo di verifiche in attesa.
+     */
+    public ArchivioCredenziali(int thread, int coda) {
+        AtomicInteger contatore = new AtomicInteger();
+        this.verificatori = new ThreadPoolExecutor(thread, thread, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(coda), r -> {
+            Thread t = new Thread(r, "verifica-credenziali-" + contatore.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.verificatori.allowCoreThreadTimeOut(true);
+        this.sessioni = new ConcurrentHashMap<>();
+        this.fittizia = Credenziale.crea(new char[0]);
+    }
+
+    /**
+     * Restituisce l'archivio condiviso, creandolo al primo utilizzo.
+     * @return l'unica istanza condivisa di {@link ArchivioCredenziali}.
+     */
+    public static ArchivioCredenziali getInstance() {
+        return Condiviso.ISTANZA;
+    }
+
+    /**
+     * Verifica la password di un destinatario in modo asincrono sul pool e, se è corretta, apre una sessione.
+     * L'array della password viene azzerato al termine della verifica.
+     * @param destinatario il destinatario che accede, oppure null se l'email non corrisponde a nessun destinatario.
+     * @param password la password inserita.
+     * @return un future con il token della nuova sessione, oppure null se le credenziali non sono valide;
+     *         fallisce con {@link RejectedExecutionException} se ci sono troppe verifiche in corso.
+     * @see #getDestinatario(String)
+     */
+    public CompletableFuture<String> accedi(Destinatario destinatario, char[] password) {
+        try {
+            return CompletableFuture.supplyAsync(() -> verificaSubito(destinatario, password), verificatori);
+        } catch (RejectedExecutionException e) {
+            Arrays.fill(password, '\0');
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private String verificaSubito(Destinatario destinatario, char[] password) {
+        try {
+            if (destinatario == null) {
+                fittizia.verifica(password);
+                return null;
+            }
+            if (!destinatario.getCredenziale().verifica(password)) {
+                return null;
+            }
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+        long adesso = System.currentTimeMillis();
+        sessioni.values().removeIf(s -> s.scadenza <= adesso);
+        byte[] casuali = new byte[16];
+        CASUALE.nextBytes(casuali);
+        String token = HexFormat.of().formatHex(casuali);
+        sessioni.put(token, new Sessione(destinatario, adesso + DURATA_SESSIONE_MS));
+        return token;
+    }
+
+    /**
+     * Restituisce il destinatario autenticato dal token di una sessione, senza ricalcolare l'hash della password.
+     * @param token il token restituito da {@link #accedi(Destinatario, char[])}.
+     * @return il destinatario della sessione, oppure null se il token è sconosciuto o la sessione è scaduta.
+     */
+    public Destinatario getDestinatario(String token) {
+        Sessione sessione = sessioni.get(token);
+        if (sessione == null) {
+            return null;
+        }
+        if (sessione.scadenza <= System.currentTimeMillis()) {
+            sessioni.remove(token);
+            return null;
+        }
+        return sessione.destinatario;
+    }
+
+    /**
+     * Chiude una sessione, così che il prossimo accesso richieda la verifica completa della password.
+     * @param token il token della sessione da chiudere.
+     */
+    public void chiudiSessione(String token) {
+        sessioni.remove(token);
+    }
+
+    /**
+     * Termina i thread di verifica.
+     */
+    public void shutdown() {
+        verificatori.shutdown();
+    }
+
+    private static class Sessione {
+        private final Destinatario destinatario;
+        private final long scadenza;
+
+        private Sessione(Destinatario destinatario, long scadenza) {
+            this.destinatario = destinatario;
+            this.scadenza = scadenza;
+        }
+    }
+
+    //inizializzazione pigra e thread-safe dell'istanza condivisa
+    private static class Condiviso {
+        private static final ArchivioCredenziali ISTANZA = new ArchivioCredenziali(
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 64);
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Interfaccia per ricevere i cambi di stato dei colli di un {@link Destinatario}.
+ *
+ * <p>
+ * Gli ascoltatori si iscrivono tramite {@link Destinatario#iscrivi(AscoltatoreTransizioni)} e vengono invocati dal
+ * thread che ha cambiato lo stato del collo, per cui devono restituire il controllo rapidamente; per consegnare
+ * le transizioni a un altro thread si può usare una {@link CodaTransizioni}.
+ * </p>
+ *
+ * @see Destinatario
+ * @see CodaTransizioni
+ */
+@FunctionalInterface
+public interface AscoltatoreTransizioni {
+    /**
+     * Notifica che un collo ha cambiato fase o è stato aggiunto ai colli del destinatario.
+     * @param collo il collo interessato.
+     * @param precedente la fase precedente, oppure null se il collo è stato appena aggiunto.
+     * @param corrente la nuova fase del collo.
+     */
+    void transizione(Collo collo, FaseCollo precedente, FaseCollo corrente);
+}
@@ -0,0 +1,123 @@
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * La classe {@code AvanzamentoCaricamento} raccoglie lo stato di avanzamento del caricamento dei dati.
+ *
+ * <p>
+ * Il caricamento aggiorna i contatori dai propri thread (righe del manifest interpretate, byte letti, corrieri
+ * i cui colli sono stati caricati nei veicoli) e chi mostra l'avanzamento li legge quando vuole, ad esempio
+ * con un {@link javax.swing.Timer}: in questo modo il caricamento non invia un evento per ogni riga
+ * all'Event Dispatch Thread e la lettura non lo rallenta.
+ * </p>
+ *
+ * @see DataSingleton#getAvanzamento()
+ * @see WelcomeScreenGUI
+ */
+public class AvanzamentoCaricamento {
+    /**
+     * Le fasi del caricamento dei dati, nell'ordine in cui vengono eseguite.
+     */
+    public enum Fase {
+        AVVIO("Avvio"),
+        SNAPSHOT("Lettura snapshot"),
+        MANIFEST("Lettura manifest"),
+        VEICOLI("Caricamento veicoli"),
+        DIARIO("Ripristino stati"),
+        COMPLETATO("Caricamento completato");
+
+        private final String descrizione;
+
+        Fase(String descrizione) {
+            this.descrizione = descrizione;
+        }
+
+        public String getDescrizione() {
+            return descrizione;
+        }
+    }
+
+    private volatile Fase fase = Fase.AVVIO;
+    private final AtomicLong righeLette = new AtomicLong();
+    private final AtomicLong byteLetti = new AtomicLong();
+    private volatile long byteTotali;
+    private final AtomicLong corrieriCaricati = new AtomicLong();
+    private volatile long corrieriTotali;
+
+    public Fase getFase() {
+        return fase;
+    }
+
+    void setFase(Fase fase) {
+        this.fase = fase;
+    }
+
+    /**
+     * @return il numero di righe del manifest interpretate.
+     */
+    public long getRigheLette() {
+        return righeLette.get();
+    }
+
+    /**
+     * @return il numero di byte del manifest interpretati.
+     */
+    public long getByteLetti() {
+        return byteLetti.get();
+    }
+
+    /**
+     * @return la dimensione del manifest in byte, oppure 0 se non è ancora nota.
+     */
+    public long getByteTotali() {
+        return byteTotali;
+    }
+
+    void setByteTotali(long byteTotali) {
+        this.byteTotali = byteTotali;
+    }
+
+    //chiamato una volta per blocco di righe, non per ogni riga
+    void aggiungiRighe(long righe, long dimensione) {
+        righeLette.addAndGet(righe);
+        byteLetti.addAndGet(dimensione);
+    }
+
+    /**
+     * @return il numero di corrieri i cui colli sono stati caricati nei veicoli.
+     */
+    public long getCorrieriCaricati() {
+        return corrieriCaricati.get();
+    }
+
+    /**
+     * @return il numero di corrieri da caricare, oppure 0 se non è ancora noto.
+     */
+    public long getCorrieriTotali() {
+        return corrieriTotali;
+    }
+
+    //azzera anche i corrieri caricati, perché ogni caricamento dei veicoli riparte da tutti i corrieri
+    void setCorrieriTotali(long corrieriTotali) {
+        corrieriCaricati.set(0);
+        this.corrieriTotali = corrieriTotali;
+    }
+
+    void corriereCaricato() {
+        corrieriCaricati.incrementAndGet();
+    }
+
+    /**
+     * Ritorna la descrizione dell'avanzamento da mostrare all'utente, ad esempio
+     * "Lettura manifest: 120000 righe" oppure "Caricamento veicoli: 3/12 corrieri".
+     * @return la descrizione della fase corrente e dei relativi contatori.
+     */
+    @Override
+    public String toString() {
+        Fase corrente = fase;
+        if (corrente == Fase.MANIFEST) {
+            return corrente.getDescrizione() + ": " + getRigheLette() + " righe";
+        } else if (corrente == Fase.VEICOLI) {
+            return corrente.getDescrizione() + ": " + getCorrieriCaricati() + "/" + corrieriTotali + " corrieri";
+        }
+        return corrente.getDescrizione();
+    }
+}
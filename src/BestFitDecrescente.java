@@ -0,0 +1,31 @@
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * Strategia di caricamento basata sull'algoritmo Best Fit Decreasing.
+ *
+ * <p>
+ * I colli, già ordinati per peso decrescente, vengono inseriti nel veicolo che dopo l'inserimento resta con la
+ * minore capacità residua. I veicoli sono tenuti in un {@link IndiceCapacitaResidue} ordinato per capacità
+ * residua, per cui ogni inserimento costa O(log n).
+ * </p>
+ *
+ * @see StrategiaCaricamento
+ * @see IndiceCapacitaResidue
+ */
+public class BestFitDecrescente implements StrategiaCaricamento {
+
+    @Override
+    public List<Collo> carica(List<Collo> colli, List<Veicolo> veicoli) {
+        List<Collo> colliNonGestiti = new ArrayList<>();
+        IndiceCapacitaResidue indice = new IndiceCapacitaResidue();
+        for (Veicolo v : veicoli) {
+            indice.aggiungi(v);
+        }
+        for (Collo collo : colli) {
+            if (!indice.inserisci(collo)) {
+                colliNonGestiti.add(collo);
+            }
+        }
+        return colliNonGestiti;
+    }
+}
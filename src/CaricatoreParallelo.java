@@ -0,0 +1,328 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+/**
+ * La classe {@code CaricatoreParallelo} carica un file di dati logistici sfruttando tutti i core disponibili.
+ *
+ * <p>
+ * Il file viene mappato in memoria tramite NIO e suddiviso in blocchi che iniziano e terminano sempre
+ * su un confine di riga. Ogni blocco viene interpretato in parallelo da un tokenizzatore che scorre
+ * direttamente i byte del file, senza ricorrere a {@link String#split(String)}.
+ * </p>
+ *
+ * <p>
+ * L'ordine delle righe viene rispettato solo dove è significativo: una riga "veicolo" o "collo"
+ * appartiene alla riga "corriere" che la precede nel file. Il caricamento avviene in quattro fasi:
+ * lettura parallela dei blocchi, registrazione sequenziale di corrieri, veicoli e destinatari,
+ * creazione parallela dei colli e infine la loro registrazione presso i corrieri nell'ordine del file.
+ * </p>
+ *
+ * @see FileManager
+ */
+public class CaricatoreParallelo {
+    private static final long DIMENSIONE_MINIMA_BLOCCO = 1 << 20; //un blocco più piccolo non vale il costo di un task
+    private static final long DIMENSIONE_MASSIMA_BLOCCO = 1 << 30; //limite di una singola mappatura in memoria
+    private static final byte TIPO_CORRIERE = 1;
+    private static final byte TIPO_VEICOLO = 2;
+    private static final byte TIPO_DESTINATARIO = 3;
+    private static final byte TIPO_COLLO = 4;
+    private static final byte[] CORRIERE = "corriere".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VEICOLO = "veicolo".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DESTINATARIO = "destinatario".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COLLO = "collo".getBytes(StandardCharsets.US_ASCII);
+
+    private String percorsoFile;
+    private FileManager fileManager;
+
+    /**
+     * Crea un nuovo caricatore per il file indicato.
+     * @param percorsoFile Il percorso del file da cui leggere i dati.
+     * @param fileManager Il {@link FileManager} presso cui registrare gli oggetti letti.
+     */
+    public CaricatoreParallelo(String percorsoFile, FileManager fileManager) {
+        this.percorsoFile = percorsoFile;
+        this.fileManager = fileManager;
+    }
+
+    /**
+     * Carica l'intero file registrando corrieri, veicoli, destinatari e colli presso il {@link FileManager}.
+     * Come nel caricamento sequenziale, un'ultima riga non terminata da un a capo viene lasciata
+     * all'{@link OsservatoreManifest}.
+     * @throws IOException se il file non può essere letto.
+     */
+    public void carica() throws IOException {
+        try (FileChannel canale = FileChannel.open(Path.of(percorsoFile), StandardOpenOption.READ)) {
+            long[] confini = calcolaConfini(canale);
+            fileManager.setDimensioneLetta(confini[confini.length - 1]);
+            fileManager.getAvanzamento().setByteTotali(confini[confini.length - 1]);
+            List<Blocco> blocchi;
+            try {
+                blocchi = IntStream.range(0, confini.length - 1).parallel()
+                        .mapToObj(i -> leggiBlocco(canale, confini[i], confini[i + 1]))
+                        .toList();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            //fase sequenziale: i veicoli e i colli appartengono all'ultimo corriere letto prima di loro
+            Corriere corriereCorrente = null;
+            for (Blocco blocco : blocchi) {
+                blocco.corrieri.add(corriereCorrente);
+                for (Riga riga : blocco.strutturali) {
+                    if (riga.tipo == TIPO_CORRIERE) {
+                        corriereCorrente = fileManager.registraCorriere(riga.campi[0]);
+                        blocco.corrieri.add(corriereCorrente);
+                    } else if (riga.tipo == TIPO_VEICOLO) {
+                        if (corriereCorrente != null) {
+                            Veicolo veicolo = new Veicolo(riga.campi[0], TipoVeicolo.valueOf(riga.campi[1]), riga.numero, corriereCorrente);
+                            fileManager.registraVeicolo(veicolo, corriereCorrente);
+                        }
+                    } else {
+                        fileManager.registraDestinatario(riga.destinatario);
+                    }
+                }
+            }
+
+            blocchi.parallelStream().forEach(this::creaColli);
+            for (Blocco blocco : blocchi) {
+                for (int i = 0; i < blocco.colliCreati.size(); i++) {
+                    fileManager.registraCollo(blocco.colliCreati.get(i), blocco.corrieriColli.get(i));
+                }
+            }
+        }
+    }
+
+    private long[] calcolaConfini(FileChannel canale) throws IOException {
+        long dimensione = fineUltimaRiga(canale, canale.size());
+        long numeroBlocchi = Math.min(Runtime.getRuntime().availableProcessors() * 4L, dimensione / DIMENSIONE_MINIMA_BLOCCO);
+        numeroBlocchi = Math.max(numeroBlocchi, dimensione / DIMENSIONE_MASSIMA_BLOCCO + 1);
+        long[] confini = new long[(int) numeroBlocchi + 1];
+        for (int i = 1; i < numeroBlocchi; i++) {
+            long obiettivo = Math.max(dimensione * i / numeroBlocchi, confini[i - 1]);
+            confini[i] = inizioRigaSuccessiva(canale, obiettivo, dimensione);
+        }
+        confini[confini.length - 1] = dimensione;
+        return confini;
+    }
+
+    //posizione successiva all'ultimo a capo entro la dimensione indicata, oppure 0 se non ci sono a capo: un'ultima
+    //riga non terminata potrebbe essere ancora in scrittura e viene lasciata all'OsservatoreManifest
+    static long fineUltimaRiga(FileChannel canale, long dimensione) throws IOException {
+        ByteBuffer appoggio = ByteBuffer.allocate(4096);
+        long fine = dimensione;
+        while (fine > 0) {
+            long inizio = Math.max(0, fine - appoggio.capacity());
+            appoggio.clear().limit((int) (fine - inizio));
+            while (appoggio.hasRemaining() && canale.read(appoggio, inizio + appoggio.position()) > 0) {
+                //legge l'intero tratto
+            }
+            for (int i = appoggio.position() - 1; i >= 0; i--) {
+                if (appoggio.get(i) == '\n') {
+                    return inizio + i + 1;
+                }
+            }
+            fine = inizio;
+        }
+        return 0;
+    }
+
+    //restituisce la posizione del primo byte di una riga che si trova in posizione >= obiettivo
+    private long inizioRigaSuccessiva(FileChannel canale, long obiettivo, long dimensione) throws IOException {
+        if (obiettivo == 0) {
+            return 0;
+        }
+        ByteBuffer appoggio = ByteBuffer.allocate(4096);
+        long posizione = obiettivo - 1;
+        while (posizione < dimensione) {
+            appoggio.clear();
+            int letti = canale.read(appoggio, posizione);
+            if (letti <= 0) {
+                break;
+            }
+            for (int i = 0; i < letti; i++) {
+                if (appoggio.get(i) == '\n') {
+                    return posizione + i + 1;
+                }
+            }
+            posizione += letti;
+        }
+        return dimensione;
+    }
+
+    private Blocco leggiBlocco(FileChannel canale, long inizio, long fine) {
+        Blocco blocco = new Blocco();
+        if (fine <= inizio) {
+            return blocco;
+        }
+        MappedByteBuffer buffer;
+        try {
+            buffer = canale.map(FileChannel.MapMode.READ_ONLY, inizio, fine - inizio);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Tokenizzatore tokenizzatore = new Tokenizzatore(buffer);
+        int limite = buffer.limit();
+        int posizione = 0;
+        int righe = 0;
+        while (posizione < limite) {
+            int fineRiga = posizione;
+            while (fineRiga < limite && buffer.get(fineRiga) != '\n') {
+                fineRiga++;
+            }
+            int fineUtile = fineRiga;
+            if (fineUtile > posizione && buffer.get(fineUtile - 1) == '\r') {
+                fineUtile--;
+            }
+            leggiRiga(tokenizzatore, posizione, fineUtile, blocco);
+            posizione = fineRiga + 1;
+            righe++;
+        }
+        fileManager.getAvanzamento().aggiungiRighe(righe, limite);
+        if (Metriche.ABILITATE) {
+            FileManager.RIGHE_CORRIERE.add(blocco.corrieriLetti);
+            FileManager.RIGHE_VEICOLO.add(blocco.veicoliLetti);
+            FileManager.RIGHE_DESTINATARIO.add(blocco.destinatariLetti);
+            FileManager.RIGHE_COLLO.add(blocco.colli.size());
+        }
+        return blocco;
+    }
+
+    private void leggiRiga(Tokenizzatore tokenizzatore, int inizio, int fine, Blocco blocco) {
+        int numeroCampi = tokenizzatore.dividi(inizio, fine);
+        if (tokenizzatore.campoUguale(0, CORRIERE) && numeroCampi >= 2) {
+            blocco.strutturali.add(new Riga(TIPO_CORRIERE, new String[]{tokenizzatore.stringa(1)}, 0));
+            blocco.corrieriLetti++;
+        } else if (tokenizzatore.campoUguale(0, VEICOLO) && numeroCampi >= 4) {
+            blocco.strutturali.add(new Riga(TIPO_VEICOLO,
+                    new String[]{tokenizzatore.stringa(1), tokenizzatore.stringa(2)}, tokenizzatore.intero(3)));
+            blocco.veicoliLetti++;
+        } else if (tokenizzatore.campoUguale(0, DESTINATARIO) && numeroCampi >= 6) {
+            Riga riga = new Riga(TIPO_DESTINATARIO, null, 0);
+            riga.destinatario = fileManager.creaDestinatario(tokenizzatore.stringa(1), tokenizzatore.stringa(2),
+                    tokenizzatore.stringa(3), tokenizzatore.stringa(4), tokenizzatore.stringa(5));
+            blocco.strutturali.add(riga);
+            blocco.destinatariLetti++;
+        } else if (tokenizzatore.campoUguale(0, COLLO) && numeroCampi >= 6) {
+            Riga riga = new Riga(TIPO_COLLO, new String[]{tokenizzatore.stringa(1), tokenizzatore.stringa(2),
+                    tokenizzatore.stringa(3), tokenizzatore.stringa(5)}, tokenizzatore.intero(4));
+            riga.corrieriPrecedenti = blocco.corrieriLetti;
+            blocco.colli.add(riga);
+        }
+    }
+
+    private void creaColli(Blocco blocco) {
+        for (Riga riga : blocco.colli) {
+            Corriere corriere = blocco.corrieri.get(riga.corrieriPrecedenti);
+            Destinatario destinatario = fileManager.cercaDestinatario(riga.campi[2]);
+            if (corriere == null || destinatario == null) {
+                continue; //collo senza corriere o destinatario non trovato
+            }
+            blocco.colliCreati.add(fileManager.creaCollo(riga.campi[0], riga.campi[1], destinatario, riga.numero, riga.campi[3]));
+            blocco.corrieriColli.add(corriere);
+        }
+    }
+
+    //insieme delle righe lette da un blocco del file, nell'ordine in cui compaiono
+    private static class Blocco {
+        private final List<Riga> strutturali = new ArrayList<>(); //corrieri, veicoli e destinatari
+        private final List<Riga> colli = new ArrayList<>();
+        private final List<Corriere> corrieri = new ArrayList<>(); //in posizione 0 il corriere ereditato dal blocco precedente
+        private final List<Collo> colliCreati = new ArrayList<>();
+        private final List<Corriere> corrieriColli = new ArrayList<>();
+        private int corrieriLetti;
+        private int veicoliLetti;
+        private int destinatariLetti;
+    }
+
+    private static class Riga {
+        private final byte tipo;
+        private final String[] campi;
+        private final int numero; //capienza del veicolo o peso del collo
+        private int corrieriPrecedenti; //numero di righe "corriere" del blocco che precedono il collo
+        private Destinatario destinatario;
+
+        private Riga(byte tipo, String[] campi, int numero) {
+            this.tipo = tipo;
+            this.campi = campi;
+            this.numero = numero;
+        }
+    }
+
+    //divide una riga nei suoi campi separati da virgola leggendo direttamente i byte del buffer
+    private static class Tokenizzatore {
+        private static final int CAMPI_MASSIMI = 16;
+        private final ByteBuffer buffer;
+        private final int[] inizi = new int[CAMPI_MASSIMI];
+        private final int[] fini = new int[CAMPI_MASSIMI];
+        private byte[] appoggio = new byte[128];
+        private int numeroCampi;
+
+        private Tokenizzatore(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private int dividi(int inizio, int fine) {
+            numeroCampi = 0;
+            int inizioCampo = inizio;
+            for (int i = inizio; i < fine && numeroCampi < CAMPI_MASSIMI - 1; i++) {
+                if (buffer.get(i) == ',') {
+                    inizi[numeroCampi] = inizioCampo;
+                    fini[numeroCampi++] = i;
+                    inizioCampo = i + 1;
+                }
+            }
+            inizi[numeroCampi] = inizioCampo;
+            fini[numeroCampi++] = fine;
+            return numeroCampi;
+        }
+
+        private boolean campoUguale(int campo, byte[] atteso) {
+            int inizio = inizi[campo];
+            if (fini[campo] - inizio != atteso.length) {
+                return false;
+            }
+            for (int i = 0; i < atteso.length; i++) {
+                if (buffer.get(inizio + i) != atteso[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String stringa(int campo) {
+            int lunghezza = fini[campo] - inizi[campo];
+            if (lunghezza > appoggio.length) {
+                appoggio = new byte[Math.max(lunghezza, appoggio.length * 2)];
+            }
+            buffer.get(inizi[campo], appoggio, 0, lunghezza);
+            return new String(appoggio, 0, lunghezza, StandardCharsets.UTF_8);
+        }
+
+        private int intero(int campo) {
+            int inizio = inizi[campo];
+            int fine = fini[campo];
+            boolean negativo = inizio < fine && buffer.get(inizio) == '-';
+            int i = negativo ? inizio + 1 : inizio;
+            if (i == fine) {
+                throw new NumberFormatException("Campo numerico vuoto");
+            }
+            int valore = 0;
+            for (; i < fine; i++) {
+                int cifra = buffer.get(i) - '0';
+                if (cifra < 0 || cifra > 9) {
+                    throw new NumberFormatException("Carattere non numerico nel campo: " + stringa(campo));
+                }
+                valore = Math.addExact(Math.multiplyExact(valore, 10), cifra);
+            }
+            return negativo ? -valore : valore;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Rappresentazione compatta della catena di responsabilità formata dai veicoli di un corriere.
+ *
+ * <p>
+ * Capienze, carichi correnti e collegamenti tra i veicoli vengono copiati in array primitivi, così che la
+ * ricerca del primo veicolo della catena in grado di accogliere un collo sia un semplice ciclo sugli
+ * indici, senza ricorsione né chiamate virtuali. La semantica è la stessa di
+ * {@link Veicolo#puoEssereInserito(Collo)}: partendo da un veicolo si prosegue lungo i suoi successori
+ * fino al primo con spazio sufficiente.
+ * </p>
+ *
+ * <p>
+ * I carichi vengono mantenuti allineati solo per gli inserimenti effettuati tramite {@link #inserisci(int, Collo)};
+ * la catena va quindi costruita all'inizio di un caricamento e usata fino al suo termine.
+ * I successori che non fanno parte della lista dei veicoli vengono considerati come fine della catena.
+ * </p>
+ *
+ * @see GestoreColli
+ * @see NextFit
+ */
+public class CatenaVeicoli {
+    private final Veicolo[] veicoli;
+    private final int[] capienze;
+    private final int[] carichi;
+    private final int[] successivi; //indice del veicolo successivo nella catena, -1 se non esiste
+
+    /**
+     * Costruisce la catena a partire dai veicoli forniti e dai loro collegamenti {@link GestoreColli#getSuccessivo()}.
+     * @param veicoli i veicoli del corriere.
+     */
+    public CatenaVeicoli(List<Veicolo> veicoli) {
+        int n = veicoli.size();
+        this.veicoli = veicoli.toArray(new Veicolo[0]);
+        this.capienze = new int[n];
+        this.carichi = new int[n];
+        this.successivi = new int[n];
+        Map<GestoreColli, Integer> indici = new IdentityHashMap<>(n);
+        for (int i = 0; i < n; i++) {
+            indici.put(this.veicoli[i], i);
+            capienze[i] = this.veicoli[i].getCapienzaContainer();
+            carichi[i] = this.veicoli[i].getCaricoCorrente();
+        }
+        for (int i = 0; i < n; i++) {
+            Integer successivo = indici.get(this.veicoli[i].getSuccessivo());
+            successivi[i] = successivo == null ? -1 : successivo;
+        }
+    }
+
+    /**
+     * Percorre la catena a partire dal veicolo indicato e restituisce il primo con spazio sufficiente.
+     * Il numero di passi è limitato dal numero di veicoli, per cui anche una catena chiusa ad anello termina.
+     * @param partenza l'indice del veicolo da cui iniziare la ricerca.
+     * @param peso il peso del collo da inserire.
+     * @return l'indice del veicolo trovato, oppure -1 se nessun veicolo della catena può contenere il collo.
+     */
+    public int cerca(int partenza, int peso) {
+        int passi = capienze.length;
+        for (int i = partenza; i >= 0 && passi-- > 0; i = successivi[i]) {
+            if (carichi[i] + peso <= capienze[i]) {
+                Veicolo.registraPassi(capienze.length - passi);
+                return i;
+            }
+        }
+        Veicolo.registraPassi(capienze.length - Math.max(passi, 0));
+        return -1;
+    }
+
+    /**
+     * Inserisce il collo nel veicolo indicato, aggiornando sia il veicolo sia la copia primitiva del suo carico.
+     * @param indice l'indice del veicolo restituito da {@link #cerca(int, int)}.
+     * @param collo il collo da inserire.
+     */
+    public void inserisci(int indice, Collo collo) {
+        carichi[indice] += collo.getPeso();
+        veicoli[indice].carica(collo);
+    }
+}
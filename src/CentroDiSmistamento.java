@@ -1,6 +1,9 @@
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 /**
  * Rappresenta un centro di smistamento all'interno del sistema di spedizione.
  *
@@ -22,36 +25,126 @@ import java.util.Map;
  * una facile ricerca e tracciamento dei colli attraverso i corrieri associati.
  * </p>
  *
+ * <p>
+ * Il centro mantiene inoltre un indice concorrente dei colli per codice di spedizione, aggiornato dai corrieri
+ * ogni volta che un collo viene aggiunto o caricato in un veicolo, così che il tracciamento richieda una sola
+ * ricerca nella mappa indipendentemente dal numero di colli e di corrieri gestiti. Il codice di spedizione non è
+ * necessariamente univoco tra destinatari diversi: di norma l'indice associa al codice il collo stesso e solo per
+ * i codici condivisi da più colli un array con tutti i colli che lo riportano, tra cui si cerca quello del
+ * destinatario.
+ * </p>
+ *
+ * <p>
+ * I tracciamenti vengono registrati nelle {@link Metriche} distinguendo i colli trovati da quelli non trovati.
+ * Ogni tracciamento singolo incrementa il contatore del suo esito, mentre la latenza, che richiederebbe due letture
+ * dell'orologio costose quanto il tracciamento stesso, viene misurata solo per le chiamate campionate e finisce
+ * nell'istogramma del suo esito. I tracciamenti multipli vengono contati con un solo aggiornamento per chiamata.
+ * </p>
+ *
  * @see Mediator
  * @see Corriere
  * @see Collo
  */
 
 public class CentroDiSmistamento implements Mediator {
+    private static final String COLLO_NON_TROVATO = "Collo non trovato per il destinatario ";
+    private static final LongAdder TROVATI = Metriche.getInstance().contatore("tracciamento.trovati");
+    private static final LongAdder NON_TROVATI = Metriche.getInstance().contatore("tracciamento.non_trovati");
+    private static final Istogramma LATENZA_TROVATI = Metriche.getInstance().istogramma("tracciamento.latenza.trovati", "ns");
+    private static final Istogramma LATENZA_NON_TROVATI = Metriche.getInstance().istogramma("tracciamento.latenza.non_trovati", "ns");
+    private static final LongAdder MULTIPLI_TROVATI = Metriche.getInstance().contatore("tracciamento.multiplo.trovati");
+    private static final LongAdder MULTIPLI_NON_TROVATI = Metriche.getInstance().contatore("tracciamento.multiplo.non_trovati");
+    private static final Istogramma LATENZA_MULTIPLO = Metriche.getInstance().istogramma("tracciamento.multiplo.latenza", "ns");
 
     private Map<String, Corriere> corrieriInCentro;
+    private Map<String, Object> indiceColli; //codice di spedizione -> Collo, oppure Collo[] per i codici condivisi
+    private volatile DiarioTransizioni diarioTransizioni;
 
     /**
      *Inizializza un nuovo centro di smistamento senza corrieri.
      */
     public CentroDiSmistamento() {
-        this.corrieriInCentro = new HashMap<>();
+        this.corrieriInCentro = new ConcurrentHashMap<>();
+        this.indiceColli = new ConcurrentHashMap<>();
     }
 
     /**
-     * Aggiunge un corriere al centro di smistamento.
+     * Aggiunge un corriere al centro di smistamento e lo collega al centro, così che i colli
+     * gestiti dal corriere vengano indicizzati per codice di spedizione.
      * @param corriere  L'oggetto {@link Corriere} da aggiungere al centro di smistamento.
      */
     public void aggiungiCorriere(Corriere corriere) {
         corrieriInCentro.put(corriere.getNome(), corriere);
+        corriere.setCentroDiSmistamento(this);
+    }
+
+    /**
+     * Imposta il diario in cui i corrieri registrano i cambi di stato dei colli.
+     * @param diarioTransizioni il diario delle transizioni, oppure null per non registrarle.
+     */
+    public void setDiarioTransizioni(DiarioTransizioni diarioTransizioni) {
+        this.diarioTransizioni = diarioTransizioni;
+    }
+
+    /**
+     * Ritorna il diario in cui vengono registrati i cambi di stato dei colli.
+     * @return il diario delle transizioni, oppure null se non è impostato.
+     */
+    public DiarioTransizioni getDiarioTransizioni() {
+        return diarioTransizioni;
+    }
+
+    /**
+     * Registra un collo nell'indice dei codici di spedizione.
+     * Se il codice è già associato ad altri colli, ad esempio di un altro destinatario, il collo viene aggiunto
+     * a quelli già presenti; un collo già indicizzato non viene registrato di nuovo.
+     * @param collo Il {@link Collo} da indicizzare.
+     */
+    public void indicizzaCollo(Collo collo) {
+        indiceColli.merge(collo.getCodiceSpedizione(), collo, CentroDiSmistamento::aggiungiOmonimo);
+    }
+
+    //unisce un collo ai colli già indicizzati con lo stesso codice di spedizione
+    private static Object aggiungiOmonimo(Object presenti, Object nuovo) {
+        Collo[] colli = presenti instanceof Collo[] array ? array : new Collo[]{(Collo) presenti};
+        for (Collo c : colli) {
+            if (c == nuovo) {
+                return presenti;
+            }
+        }
+        Collo[] uniti = Arrays.copyOf(colli, colli.length + 1);
+        uniti[colli.length] = (Collo) nuovo;
+        return uniti;
+    }
+
+    //collo del destinatario con il codice di spedizione indicato, oppure null se il destinatario non ne ha
+    private Collo cercaCollo(Destinatario destinatario, String codice) {
+        Object voce = indiceColli.get(codice);
+        if (voce instanceof Collo collo) {
+            return appartiene(collo, destinatario) ? collo : null;
+        }
+        return voce == null ? null : cercaTraOmonimi((Collo[]) voce, destinatario);
+    }
+
+    private static Collo cercaTraOmonimi(Collo[] colli, Destinatario destinatario) {
+        for (Collo collo : colli) {
+            if (appartiene(collo, destinatario)) {
+                return collo;
+            }
+        }
+        return null;
+    }
+
+    private static boolean appartiene(Collo collo, Destinatario destinatario) {
+        return collo.getDestinatario() == destinatario || collo.getDestinatario().equals(destinatario);
     }
 
     /**
      * Traccia un collo specifico basandosi sul destinatario e sul codice di spedizione.
      *
      * <p>
-     * Questo metodo cerca il collo attraverso tutti i corrieri presenti nel centro di smistamento.
-     * Se il collo viene trovato, restituisce lo stato corrente del collo.
+     * Questo metodo cerca il collo nell'indice dei codici di spedizione e verifica che appartenga al
+     * destinatario indicato. Se il collo viene trovato, restituisce lo stato corrente del collo.
      * </p>
      *
      * @param destinatario L'oggetto {@link Destinatario} associato al collo.
@@ -60,17 +153,52 @@ public class CentroDiSmistamento implements Mediator {
      */
     @Override
     public String tracciaCollo(Destinatario destinatario, String codice) {
-        for (Corriere corriere : corrieriInCentro.values()) {
-            Map<Collo, List<Veicolo>> mappaColliInVecoli = corriere.getMappaColliInVecoli();
-            for (Map.Entry<Collo, List<Veicolo>> entry : mappaColliInVecoli.entrySet()) {
-                Collo collo = entry.getKey();
-                if (collo.getDestinatario().equals(destinatario)) {
-                    if (collo.getCodiceSpedizione().equals(codice)) {
-                        return collo.stampaStato();
-                    }
-                }
+        boolean campionato = Metriche.campiona();
+        long inizio = campionato ? System.nanoTime() : 0;
+        Collo collo = cercaCollo(destinatario, codice);
+        boolean trovato = collo != null;
+        String stato = trovato ? collo.stampaStato() : COLLO_NON_TROVATO;
+        if (Metriche.ABILITATE) {
+            (trovato ? TROVATI : NON_TROVATI).increment();
+            if (campionato) {
+                (trovato ? LATENZA_TROVATI : LATENZA_NON_TROVATI).registra(System.nanoTime() - inizio);
             }
         }
-        return "Collo non trovato per il destinatario ";
+        return stato;
+    }
+
+    /**
+     * Traccia più colli dello stesso destinatario in un unico passaggio sui codici.
+     *
+     * <p>
+     * Ogni codice richiede una sola ricerca nell'indice dei codici di spedizione e gli stati restituiti sono
+     * i messaggi già composti da ciascun collo, per cui oltre alla mappa risultante non vengono creati oggetti
+     * per i singoli codici.
+     * </p>
+     *
+     * @param destinatario L'oggetto {@link Destinatario} associato ai colli.
+     * @param codici I codici di spedizione dei colli.
+     * @return Una mappa dal codice di spedizione allo stato del collo o al messaggio di errore se il collo non viene trovato.
+     */
+    @Override
+    public Map<String, String> tracciaColli(Destinatario destinatario, Collection<String> codici) {
+        long inizio = Metriche.ABILITATE ? System.nanoTime() : 0;
+        Map<String, String> stati = new LinkedHashMap<>((int) (codici.size() / 0.75f) + 1);
+        int trovati = 0;
+        for (String codice : codici) {
+            Collo collo = cercaCollo(destinatario, codice);
+            if (collo != null) {
+                stati.put(codice, collo.stampaStato());
+                trovati++;
+            } else {
+                stati.put(codice, COLLO_NON_TROVATO);
+            }
+        }
+        if (Metriche.ABILITATE) {
+            MULTIPLI_TROVATI.add(trovati);
+            MULTIPLI_NON_TROVATI.add(codici.size() - trovati);
+            LATENZA_MULTIPLO.registra(System.nanoTime() - inizio);
+        }
+        return stati;
     }
 }
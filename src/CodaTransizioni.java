@@ -0,0 +1,81 @@
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+/**
+ * La classe {@code CodaTransizioni} consegna a un altro thread, in blocchi, i colli che hanno cambiato stato.
+ *
+ * <p>
+ * La coda è un {@link AscoltatoreTransizioni} da iscrivere a un {@link Destinatario}. Le transizioni dello stesso
+ * collo ancora in attesa vengono unite in una sola voce, perché al consumatore interessa solo lo stato corrente,
+ * che legge direttamente dal collo. Finché un blocco è in attesa di consegna non ne viene pianificato un altro,
+ * per cui un picco di transizioni produce pochi compiti sull'{@link Executor} invece di uno per transizione.
+ * La coda è limitata: se i colli in attesa superano la capacità, vengono scartati e il consumatore viene
+ * avvisato di dover ricaricare tutti i colli.
+ * </p>
+ *
+ * @see TrackingScreenGUI
+ */
+public class CodaTransizioni implements AscoltatoreTransizioni {
+    /**
+     * Riceve i blocchi di colli che hanno cambiato stato.
+     */
+    @FunctionalInterface
+    public interface Consumatore {
+        /**
+         * Consegna un blocco di transizioni.
+         * @param colli i colli che hanno cambiato stato o sono stati aggiunti, ciascuno una sola volta.
+         * @param completo true se la coda ha superato la capacità e alcuni colli sono stati scartati, per cui
+         *                 vanno ricaricati tutti i colli del destinatario.
+         */
+        void consegna(Set<Collo> colli, boolean completo);
+    }
+
+    private final int capacita;
+    private final Executor esecutore;
+    private final Consumatore consumatore;
+    private Set<Collo> inAttesa; //protetto dal lock della coda
+    private boolean traboccata;
+    private boolean pianificata;
+
+    /**
+     * Crea una coda che consegna i blocchi eseguendo il consumatore sull'{@link Executor} indicato.
+     * @param capacita il numero massimo di colli distinti in attesa.
+     * @param esecutore l'esecutore su cui consegnare i blocchi, ad esempio {@code SwingUtilities::invokeLater}.
+     * @param consumatore il consumatore dei blocchi.
+     */
+    public CodaTransizioni(int capacita, Executor esecutore, Consumatore consumatore) {
+        this.capacita = capacita;
+        this.esecutore = esecutore;
+        this.consumatore = consumatore;
+        this.inAttesa = new LinkedHashSet<>();
+    }
+
+    @Override
+    public void transizione(Collo collo, FaseCollo precedente, FaseCollo corrente) {
+        boolean pianifica;
+        synchronized (this) {
+            if (!traboccata && inAttesa.add(collo) && inAttesa.size() > capacita) {
+                inAttesa.clear();
+                traboccata = true;
+            }
+            pianifica = !pianificata;
+            pianificata = true;
+        }
+        if (pianifica) {
+            esecutore.execute(this::consegna);
+        }
+    }
+
+    private void consegna() {
+        Set<Collo> blocco;
+        boolean completo;
+        synchronized (this) {
+            blocco = inAttesa;
+            completo = traboccata;
+            inAttesa = new LinkedHashSet<>();
+            traboccata = false;
+            pianificata = false;
+        }
+        consumatore.consegna(blocco, completo);
+    }
+}
@@ -1,3 +1,4 @@
+import java.io.IOException;
 /**
  * La classe 'Collo' rappresenta un collo all'interno del sistema di spedizione.
  * Ogni collo ha un codice univoco, mittente, destinatario, peso, un codice di spedizione associato e uno stato
@@ -7,15 +8,22 @@
  * Il pattern State consente a un oggetto di cambiare il suo comportamento quando il suo stato interno cambia.
  * In questo contesto, il 'Collo' può trovarsi in vari stati durante il suo ciclo di spedizione (es. Ritiro, InTransito, Consegnato, ecc.)
  * E il comportamento associato a ciascuno stato è definito nelle implementazioni concrete dell'interfaccia {@link StatoCollo}.
+ * Gli stati sono istanze condivise e il collo memorizza solo l'ordinale della sua {@link FaseCollo} in un byte.
  * @see StatoCollo
  */
 public class Collo {
+    private static final Istogramma DURATA_LOCK = Metriche.getInstance().istogramma("stati.lock", "ns");
+
     private String codice;
     private String mittente;
     private Destinatario destinatario;
     private int peso;
-    private StatoCollo stato;
+    private volatile byte fase; //ordinale della FaseCollo corrente, letto dal tracciamento mentre lo schedulatore lo avanza
     private String codiceSpedizione;
+    private Stampa stampa; //messaggio di stato già composto per la fase in cui è stato letto l'ultima volta
+    private Stampa riga; //riga dell'elenco dei colli già composta, come il messaggio di stato
+    private String descrizione; //risultato di toString, calcolato al primo utilizzo
+    private int idAssegnazione = -1; //identificativo nel RegistroAssegnazioni del corriere, -1 se non caricato
 
     /**
      * Inizializza un nuovo oggetto Collo con i dettagli specificati.
@@ -38,10 +46,16 @@ public class Collo {
      *  Imposta lo stato corrente del collo.
      *  Questo metodo consente di cambiare dinamicamente il comportamento del collo
      *  in base allo stato in cui si trova durante il suo ciclo di spedizione.
+     *  Il destinatario viene informato del cambio di fase, così da aggiornare il proprio indice dei colli per fase.
      * @param stato Il nuovo stato da impostare per il collo.
      */
     public void setStato(StatoCollo stato) {
-        this.stato = stato;
+        byte precedente = fase;
+        byte corrente = (byte) stato.getFase().ordinal();
+        this.fase = corrente;
+        if (precedente != corrente && destinatario != null) {
+            destinatario.aggiornaFase(this, FaseCollo.daOrdinale(precedente), FaseCollo.daOrdinale(corrente));
+        }
     }
 
     /**
@@ -54,18 +68,65 @@ public class Collo {
 
     /**
      * Avanza il collo al prossimo stato nel suo ciclo di spedizione.
-     *
+     * Gli avanzamenti concorrenti dello stesso collo sono serializzati sul collo stesso, mentre la lettura
+     * dello stato non richiede alcun lock. Il tempo per cui il lock viene tenuto è campionato nelle {@link Metriche}.
      */
-    public void prossimoStato() {
-        stato.prossimoStato(this);
+    public synchronized void prossimoStato() {
+        boolean campionato = Metriche.campiona();
+        long inizio = campionato ? System.nanoTime() : 0;
+        getStato().prossimoStato(this);
+        if (campionato) {
+            DURATA_LOCK.registra(System.nanoTime() - inizio);
+        }
     }
 
     /**
      *  Restituisce una descrizione stringa dello stato corrente del collo.
+     *  Il messaggio viene composto una sola volta per fase e riutilizzato finché il collo non cambia stato,
+     *  per cui le letture ripetute dello stesso stato non allocano oggetti; il collo conserva solo il messaggio
+     *  della fase corrente.
      * @return Una stringa che descrive lo stato corrente del collo.
      */
     public String stampaStato() {
-        return stato.stampaStato(this);
+        int f = fase;
+        Stampa s = stampa;
+        if (s == null || s.fase != f) {
+            s = new Stampa((byte) f, FaseCollo.daOrdinale(f).getStato().stampaStato(this));
+            stampa = s; //oggetto immutabile: una scrittura concorrente lascia comunque una coppia coerente
+        }
+        return s.testo;
+    }
+
+    /**
+     * Restituisce la riga con cui il collo viene mostrato nell'elenco dei colli del destinatario: la descrizione
+     * del collo seguita dalla fase corrente. Come il messaggio di stato, la riga viene composta una sola volta per
+     * fase e il collo conserva solo quella della fase corrente.
+     * @return la riga dell'elenco che descrive il collo e la sua fase.
+     */
+    public String getRiga() {
+        int f = fase;
+        Stampa r = riga;
+        if (r == null || r.fase != f) {
+            r = new Stampa((byte) f, toString() + "   ->Stato : " + FaseCollo.daOrdinale(f));
+            riga = r;
+        }
+        return r.testo;
+    }
+
+    /**
+     * Scrive la descrizione dello stato corrente del collo nella destinazione fornita, senza costruire
+     * una nuova stringa se il messaggio non è già stato composto.
+     * @param destinazione la destinazione in cui scrivere il messaggio.
+     * @throws IOException se la destinazione non può essere scritta.
+     */
+    public void stampaStato(Appendable destinazione) throws IOException {
+        int f = fase;
+        Stampa s = stampa;
+        if (s != null && s.fase == f) {
+            destinazione.append(s.testo);
+        } else {
+            FaseCollo.daOrdinale(f).getStato().getModelloMessaggio().scrivi(codice, destinazione);
+        }
     }
 
     /**
@@ -78,10 +139,15 @@ public class Collo {
 
     @Override
     public String toString() {
-        return "\nCollo{" +
-                "codice='" + codice + '\'' +
-                ", mittente='" + mittente + '\'' +
-                '}' + "   ->" + "Codice Spedizione :" + codiceSpedizione;
+        String d = descrizione;
+        if (d == null) {
+            d = "\nCollo{" +
+                    "codice='" + codice + '\'' +
+                    ", mittente='" + mittente + '\'' +
+                    '}' + "   ->" + "Codice Spedizione :" + codiceSpedizione;
+            descrizione = d; //i campi sono immutabili, la descrizione può essere calcolata una volta sola
+        }
+        return d;
     }
 
     /**
@@ -100,4 +166,47 @@ public class Collo {
         return destinatario;
     }
 
+    int getIdAssegnazione() {
+        return idAssegnazione;
+    }
+
+    void setIdAssegnazione(int idAssegnazione) {
+        this.idAssegnazione = idAssegnazione;
+    }
+
+    /**
+     *
+     * @return mittente il mittente del collo.
+     */
+    public String getMittente() {
+        return mittente;
+    }
+
+    /**
+     *
+     * @return stato lo stato corrente del collo nel suo ciclo di spedizione.
+     */
+    public StatoCollo getStato() {
+        return FaseCollo.daOrdinale(fase).getStato();
+    }
+
+    /**
+     *
+     * @return la fase corrente del collo nel suo ciclo di spedizione.
+     */
+    public FaseCollo getFase() {
+        return FaseCollo.daOrdinale(fase);
+    }
+
+    //testo composto per una fase insieme alla fase a cui si riferisce, sostituiti insieme con una sola scrittura
+    private static class Stampa {
+        private final byte fase;
+        private final String testo;
+
+        Stampa(byte fase, String testo) {
+            this.fase = fase;
+            this.testo = testo;
+        }
+    }
+
 }
@@ -9,6 +9,15 @@
  * @see StatoCollo
  */
 public class Consegnato implements StatoCollo {
+    /**
+     * L'unica istanza dello stato "Consegnato", condivisa da tutti i colli.
+     */
+    public static final Consegnato ISTANZA = new Consegnato();
+    private static final ModelloMessaggio MESSAGGIO = new ModelloMessaggio("Il collo ", " è stato correttamente consegnato al cliente");
+
+    private Consegnato() {
+    }
+
     /**
      * Poiché "Consegnato" rappresenta l'ultimo stato possibile nel ciclo di spedizione di un {@link Collo},
      * questo metodo non effettua ulteriori transizioni di stato.
@@ -25,7 +34,24 @@ public class Consegnato implements StatoCollo {
      */
     @Override
     public String stampaStato(Collo collo) {
-        return "Il collo " + collo.getCodice() + " è stato correttamente consegnato al cliente";
+        return MESSAGGIO.componi(collo.getCodice());
+    }
+
+    /**
+     * Restituisce la fase "Consegnato" del ciclo di spedizione.
+     * @return {@link FaseCollo#CONSEGNATO}
+     */
+    @Override
+    public FaseCollo getFase() {
+        return FaseCollo.CONSEGNATO;
     }
 
+    /**
+     * Restituisce il modello del messaggio dello stato "Consegnato", con le parti costanti già separate.
+     * @return il {@link ModelloMessaggio} dello stato.
+     */
+    @Override
+    public ModelloMessaggio getModelloMessaggio() {
+        return MESSAGGIO;
+    }
 }
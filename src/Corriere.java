@@ -1,27 +1,57 @@
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 /**
  * Classe che rappresenta un corriere responsabile della gestione dei colli e dei veicoli.
  * Il corriere mantiene una lista dei colli da gestire, una lista dei veicoli disponibili
- * e una mappa che traccia in quali veicoli sono stati inseriti i colli.
- * Utilizza il pattern Chain of Responsibility per inserire i colli nei veicoli. Inoltre si occupa
- * dell'aggiornamento dello stato dei colli.
+ * e un {@link RegistroAssegnazioni} che traccia in quali veicoli sono stati inseriti i colli.
+ * I colli vengono inseriti nei veicoli dalla {@link StrategiaCaricamento} impostata con
+ * {@link #setStrategiaCaricamento(StrategiaCaricamento)}: per default {@link BestFitDecrescente}, in alternativa
+ * {@link FirstFitDecrescente} o {@link NextFit}, la strategia storica basata sul pattern Chain of Responsibility.
+ * Inoltre si occupa dell'aggiornamento dello stato dei colli.
+ *
+ * <p>
+ * Le strutture del corriere possono essere lette da più thread senza lock: i colli in attesa sono in una coda
+ * concorrente, il registro delle assegnazioni pubblica ogni collo solo dopo averlo registrato completamente,
+ * e la lista dei veicoli viene esposta come una copia immutabile ricostruita solo dopo una modifica.
+ * Le modifiche alla flotta e il caricamento dei colli sono serializzati sul corriere, mentre l'avanzamento
+ * dello stato riguarda un collo alla volta (vedi {@link Collo#prossimoStato()}).
+ * </p>
+ *
+ * <p>
+ * Le {@link Metriche} registrano la durata del caricamento di {@link #CaricaColli()}, i colli caricati, i veicoli
+ * aperti e il tempo per cui il lock del corriere viene tenuto, dall'acquisizione al rilascio, da
+ * {@link #CaricaColli()} e, campionato, da {@link #accept(Collo)}.
+ * </p>
  */
 public class Corriere {
+    /**
+     * Ritardo in millisecondi tra l'avvio degli aggiornamenti e il primo avanzamento di stato di un collo.
+     */
+    public static final long RITARDO_PRIMO_AGGIORNAMENTO_MS = 50_000;
+    /**
+     * Intervallo in millisecondi tra due avanzamenti di stato successivi dello stesso collo.
+     */
+    public static final long PERIODO_AGGIORNAMENTO_MS = 60_000;
+    private static final Istogramma DURATA_CARICAMENTO = Metriche.getInstance().istogramma("corriere.carica_colli.durata", "ns");
+    private static final Istogramma DURATA_LOCK = Metriche.getInstance().istogramma("corriere.lock", "ns");
+    private static final LongAdder COLLI_CARICATI = Metriche.getInstance().contatore("corriere.colli_caricati");
+    private static final LongAdder VEICOLI_APERTI = Metriche.getInstance().contatore("corriere.veicoli_aperti");
+
     private String nome; //nome del corriere
-    private List<Collo> colli; //lista dei colli da gestire
-    private List<Veicolo> veicoli; //lista dei veicoli del corriere
-    private Map<Collo, List<Veicolo>> mappaColliInVecoli; //mappa che associa ciascun collo alla lista di veicoli in cui è stato inserito
-    private ScheduledExecutorService scheduledExecutorService; //può programmare comandi da eseguire dopo un determinato ritardo o per essere eseguiti periodicamente
+    private Queue<Collo> colli; //colli da gestire, non ancora caricati
+    private List<Veicolo> veicoli; //lista dei veicoli del corriere, modificata solo tenendo il lock del corriere
+    private volatile List<Veicolo> vistaVeicoli; //copia immutabile di veicoli, null dopo una modifica
+    private RegistroAssegnazioni assegnazioni; //associa ciascun collo ai veicoli in cui è stato inserito
+    private volatile boolean aggiornamentoAttivo; //true se lo stato dei colli viene avanzato periodicamente
+    private CentroDiSmistamento centroDiSmistamento; //centro che indicizza i colli per codice di spedizione
+    private StrategiaCaricamento strategiaCaricamento; //algoritmo usato per caricare i colli nei veicoli
+    private IndiceCapacitaResidue indiceResidui; //veicoli per capacità residua, usato da accept; null se da ricostruire
+    private FornitoreVeicoli fornitoreVeicoli; //apre i veicoli per i colli che non entrano nella flotta
+    private RisultatoCaricamento ultimoRisultatoCaricamento;
 
     /**
      * Costruisce un nuovo oggetto Corriere con un dato nome
@@ -29,32 +59,73 @@ public class Corriere {
      */
     public Corriere(String nome) {
         this.nome = nome;
-        this.colli = new ArrayList<>();
+        this.colli = new ConcurrentLinkedQueue<>();
         this.veicoli = new ArrayList<>();
-        this.mappaColliInVecoli = new HashMap<>();
-        this.scheduledExecutorService = Executors.newScheduledThreadPool(1);
+        this.assegnazioni = new RegistroAssegnazioni();
+        this.strategiaCaricamento = new BestFitDecrescente();
+        this.fornitoreVeicoli = new FornitoreVeicoli();
+    }
+
+    /**
+     * Imposta la strategia usata da {@link #CaricaColli()} per caricare i colli nei veicoli.
+     * @param strategiaCaricamento la strategia di caricamento da utilizzare.
+     */
+    public void setStrategiaCaricamento(StrategiaCaricamento strategiaCaricamento) {
+        this.strategiaCaricamento = strategiaCaricamento;
+    }
+
+    /**
+     * Imposta il fornitore che apre nuovi veicoli per i colli che non entrano nella flotta del corriere.
+     * @param fornitoreVeicoli il fornitore di veicoli da utilizzare.
+     */
+    public void setFornitoreVeicoli(FornitoreVeicoli fornitoreVeicoli) {
+        this.fornitoreVeicoli = fornitoreVeicoli;
     }
 
     /**
-     * Pianifica un task periodico per aggiornare lo stato dei colli gestiti dal corriere.
+     * Ritorna il riepilogo dell'ultima esecuzione di {@link #CaricaColli()}.
+     * @return il riepilogo dell'ultimo caricamento, oppure null se i colli non sono mai stati caricati.
      */
-    public void scheduleUpdate() {
-        scheduledExecutorService.scheduleAtFixedRate(() -> {
-            aggiornaStatoColli();
-        }, 50, 60, TimeUnit.SECONDS);
+    public RisultatoCaricamento getUltimoRisultatoCaricamento() {
+        return ultimoRisultatoCaricamento;
     }
 
     /**
-     * Aggiorna lo stato di ogni collo nella mappa dei colli gestiti dal corriere.
-     * Questo metodo sincronizza l'accesso alla mappa dei colli e avanza lo stato di
-     * ogni collo alla sua prossima fase, seguendo il pattern State.
+     * Pianifica l'aggiornamento periodico dello stato dei colli caricati nei veicoli del corriere.
+     * Ogni collo viene affidato allo {@link SchedulatoreStati} condiviso, che lo avanza alla sua prossima fase
+     * dopo {@link #RITARDO_PRIMO_AGGIORNAMENTO_MS} e poi ogni {@link #PERIODO_AGGIORNAMENTO_MS}, fino alla consegna.
+     * I colli caricati in seguito vengono pianificati nel momento in cui sono inseriti in un veicolo.
      */
-    private void aggiornaStatoColli() {
-        synchronized (mappaColliInVecoli) {
-            for (Collo c : mappaColliInVecoli.keySet()) {
-                c.prossimoStato();
+    public synchronized void scheduleUpdate() {
+        aggiornamentoAttivo = true;
+        SchedulatoreStati schedulatore = SchedulatoreStati.getInstance();
+        for (int i = 0, n = assegnazioni.numeroColli(); i < n; i++) {
+            schedulatore.pianifica(assegnazioni.getCollo(i), this, RITARDO_PRIMO_AGGIORNAMENTO_MS);
+        }
+    }
+
+    /**
+     * Avanza lo stato del collo alla sua prossima fase, seguendo il pattern State.
+     * Viene invocato dallo {@link SchedulatoreStati} alla scadenza del collo. Se il centro di smistamento ha un
+     * {@link DiarioTransizioni}, il cambio di fase vi viene registrato.
+     * @param c il collo da avanzare.
+     * @return true se il collo deve essere avanzato di nuovo in futuro, false se è stato consegnato
+     *         o se il corriere ha interrotto gli aggiornamenti.
+     */
+    public boolean avanzaCollo(Collo c) {
+        if (!aggiornamentoAttivo) {
+            return false;
+        }
+        FaseCollo precedente = c.getFase();
+        c.prossimoStato();
+        FaseCollo corrente = c.getFase();
+        if (corrente != precedente && centroDiSmistamento != null) {
+            DiarioTransizioni diario = centroDiSmistamento.getDiarioTransizioni();
+            if (diario != null) {
+                diario.registra(c);
             }
         }
+        return corrente != FaseCollo.CONSEGNATO;
     }
 
     /**
@@ -67,26 +138,41 @@ public class Corriere {
     }
 
     /**
-     *Termina l'esecuzione del ScheduledExecutorService e interrompe tutti i task pianificati.
+     * Collega il corriere al centro di smistamento che indicizza i suoi colli per codice di spedizione.
+     * I colli già gestiti dal corriere vengono indicizzati immediatamente.
+     * @param centroDiSmistamento il centro di smistamento a cui appartiene il corriere.
      */
-    public void shutdown() {
-        if (scheduledExecutorService != null) {
-            this.scheduledExecutorService.shutdown();
+    public void setCentroDiSmistamento(CentroDiSmistamento centroDiSmistamento) {
+        this.centroDiSmistamento = centroDiSmistamento;
+        for (Collo c : colli) {
+            centroDiSmistamento.indicizzaCollo(c);
+        }
+        for (int i = 0, n = assegnazioni.numeroColli(); i < n; i++) {
+            centroDiSmistamento.indicizzaCollo(assegnazioni.getCollo(i));
         }
     }
 
     /**
-     * Inserisce un collo nella mappa, associandolo a una lista di veicoli.
+     * Interrompe l'aggiornamento periodico dello stato dei colli del corriere.
+     */
+    public void shutdown() {
+        aggiornamentoAttivo = false;
+    }
+
+    /**
+     * Registra che un collo è stato inserito in un veicolo. Più veicoli possono essere associati allo stesso collo.
      * @param c Il collo da inserire.
      * @param v Il veicolo in cui inserire il collo.
      */
     public void inserisciInMappa(Collo c, Veicolo v) {
-        /*
-        Mappa in cui più veicoli possono essere associati allo stesso collo
-        la funziona lambda viene eseguita solo se la chiave non è già presente nella mappa, questa funzione crea una nuova
-        istanza di ArrayList<Veicolo> e l'aggiunge come valore associato alla chiave c nella mappa.
-         */
-        mappaColliInVecoli.computeIfAbsent(c, k -> new ArrayList<>()).add(v);
+        if (assegnazioni.assegna(c, v)) {
+            if (centroDiSmistamento != null) {
+                centroDiSmistamento.indicizzaCollo(c);
+            }
+            if (aggiornamentoAttivo) {
+                SchedulatoreStati.getInstance().pianifica(c, this, RITARDO_PRIMO_AGGIORNAMENTO_MS);
+            }
+        }
     }
 
     /**
@@ -94,9 +180,9 @@ public class Corriere {
      */
 
     public void stampaMappaColliVeicoli() {
-        for (Map.Entry<Collo, List<Veicolo>> entry : mappaColliInVecoli.entrySet()) {
-            Collo collo = entry.getKey();
-            List<Veicolo> veicoli = entry.getValue();
+        for (int i = 0, n = assegnazioni.numeroColli(); i < n; i++) {
+            Collo collo = assegnazioni.getCollo(i);
+            List<Veicolo> veicoli = assegnazioni.getVeicoli(collo);
 
             System.out.println("Il Collo: " + collo.getCodice() + "destinato a: " + collo.getDestinatario().getNome() + " si trova:");
             for (Veicolo veicolo : veicoli) {
@@ -112,87 +198,176 @@ public class Corriere {
      * @param v Veicolo da aggiungere.
      */
 
-    public void aggiungiVeicolo(Veicolo v) {
+    public synchronized void aggiungiVeicolo(Veicolo v) {
         if (!veicoli.isEmpty()) {
             veicoli.get(veicoli.size() - 1).setNext(v);
         }
         veicoli.add(v);
+        vistaVeicoli = null;
+        if (indiceResidui != null) {
+            indiceResidui.aggiungi(v);
+        }
     }
 
     /**
      * Aggiunge un collo alla lista dei colli gestita dal Corriere e imposta il suo stato iniziale. Inoltre associa il
-     * collo al suo destinatario.
+     * collo al suo destinatario e lo registra nell'indice del centro di smistamento.
      * @param c Collo da aggiungere.
      */
     public void aggiungiCollo(Collo c) {
         colli.add(c);
         c.getDestinatario().aggiungiColliAssociati(c);
-        c.setStato(new Ritiro());
+        c.setStato(Ritiro.ISTANZA);
+        if (centroDiSmistamento != null) {
+            centroDiSmistamento.indicizzaCollo(c);
+        }
     }
 
-    // Metodo per generare un tipo di veicolo casuale dalla enum TipoVeicolo
-    private TipoVeicolo generaTipoVeicoloCasuale() {
-        Random random = new Random();
-        TipoVeicolo[] tipiVeicolo = TipoVeicolo.values();
-        return tipiVeicolo[random.nextInt(tipiVeicolo.length)];
+    /**
+     * Accetta un collo arrivato dopo il caricamento e lo inserisce subito in un veicolo, senza ricaricare
+     * i colli già assegnati. Il collo viene associato al suo destinatario e posto nello stato iniziale come in
+     * {@link #aggiungiCollo(Collo)}, poi inserito nel veicolo con la minima capacità residua sufficiente.
+     * I veicoli restano in un {@link IndiceCapacitaResidue} tra una chiamata e l'altra, per cui ogni collo costa
+     * O(log n) nel numero di veicoli; un nuovo veicolo viene aperto dal {@link FornitoreVeicoli} solo se il
+     * collo non entra in nessuno.
+     * @param c Collo da inserire.
+     */
+    public synchronized void accept(Collo c) {
+        boolean campionato = Metriche.campiona();
+        long inizio = campionato ? System.nanoTime() : 0;
+        c.getDestinatario().aggiungiColliAssociati(c);
+        c.setStato(Ritiro.ISTANZA);
+        if (indiceResidui == null) {
+            indiceResidui = new IndiceCapacitaResidue();
+            for (Veicolo v : veicoli) {
+                indiceResidui.aggiungi(v);
+            }
+        }
+        if (!indiceResidui.inserisci(c)) {
+            Veicolo nuovoVeicolo = fornitoreVeicoli.apriVeicolo(c, this);
+            veicoli.add(nuovoVeicolo);
+            vistaVeicoli = null;
+            indiceResidui.aggiungi(nuovoVeicolo);
+            if (Metriche.ABILITATE) {
+                VEICOLI_APERTI.increment();
+            }
+        }
+        if (Metriche.ABILITATE) {
+            COLLI_CARICATI.increment();
+        }
+        if (campionato) {
+            DURATA_LOCK.registra(System.nanoTime() - inizio);
+        }
+    }
+
+    /**
+     * Ripristina un collo letto da uno snapshot senza modificarne lo stato corrente.
+     * Il collo viene associato al suo destinatario, ai veicoli in cui era stato caricato e all'indice
+     * del centro di smistamento; se non era ancora stato caricato torna nella lista dei colli da gestire.
+     * @param c Collo da ripristinare.
+     * @param veicoliAssegnati i veicoli in cui il collo era stato caricato.
+     */
+    void ripristinaCollo(Collo c, List<Veicolo> veicoliAssegnati) {
+        if (veicoliAssegnati.isEmpty()) {
+            colli.add(c);
+        }
+        c.getDestinatario().aggiungiColliAssociati(c);
+        for (Veicolo v : veicoliAssegnati) {
+            inserisciInMappa(c, v);
+        }
+        if (centroDiSmistamento != null) {
+            centroDiSmistamento.indicizzaCollo(c);
+        }
     }
 
-    // Metodo per generare una targa casuale
-    private String generaTargaCasuale() {
-        return UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    /**
+     * Ritorna la lista dei colli non ancora caricati nei veicoli.
+     * @return una copia dei colli in attesa di caricamento.
+     */
+    public List<Collo> getColli() {
+        return new ArrayList<>(colli);
     }
 
     /**
-     * Ritorna la mappa dei colli e dei veicoli associati.
-     * @return mappaColliInVeicoli mappa dei colli e dei veicoli associati.
+     * Ritorna la lista dei veicoli del corriere. La lista non è modificabile e non cambia se in seguito
+     * vengono aggiunti veicoli; può essere letta da qualunque thread senza sincronizzazione.
+     * @return veicoli i veicoli del corriere.
      */
-    public Map<Collo, List<Veicolo>> getMappaColliInVecoli() {
-        return mappaColliInVecoli;
+    public List<Veicolo> getVeicoli() {
+        List<Veicolo> vista = vistaVeicoli;
+        if (vista == null) {
+            synchronized (this) {
+                vista = List.copyOf(veicoli);
+                vistaVeicoli = vista;
+            }
+        }
+        return vista;
+    }
+
+    /**
+     * Ritorna il registro che associa i colli caricati ai veicoli in cui si trovano.
+     * Il registro può essere letto da qualunque thread senza sincronizzazione.
+     * @return assegnazioni il registro delle assegnazioni dei colli ai veicoli.
+     */
+    public RegistroAssegnazioni getRegistroAssegnazioni() {
+        return assegnazioni;
     }
 
     /**
      * Carica i colli nei veicoli disponibili seguendo una strategia ottimizzata.
      * Questo metodo:
      * Odina la lista dei veicoli e dei colli in maniera decrescente in base alla capienza e al peso, rispettivamente.
-     * Prova a inserire ogni collo in un veicolo disponibile utilizzando il pattern chain of responsibility e la tecnica dell'algoritmo next fit.
-     * Se un collo non può essere gestito da nessuno dei veicoli esistenti, viene creato un nuovo veicolo.
-     * La strategia mira a garantire che i colli siano caricati in modo efficiente.
+     * Prova a inserire ogni collo in un veicolo disponibile utilizzando la {@link StrategiaCaricamento} impostata
+     * (di default {@link BestFitDecrescente}).
+     * I colli che non possono essere gestiti da nessuno dei veicoli esistenti vengono affidati al
+     * {@link FornitoreVeicoli}, che apre i veicoli standard più piccoli sufficienti e li riempie.
+     * Al termine registra un {@link RisultatoCaricamento} con i veicoli utilizzati e il rapporto di riempimento.
+     * Per i colli che arrivano uno alla volta dopo il caricamento si usa {@link #accept(Collo)}.
      */
     public void CaricaColli() {
-        int indiceCorrente = 0;
-        veicoli.sort(Comparator.comparingInt(Veicolo::getCapienzaContainer).reversed()); //ordino in maniera descrescente per ottimizzare
-        colli.sort(Comparator.comparingInt(Collo::getPeso).reversed());
-        List<Collo> colliNonGestiti = new ArrayList<>();
-        //ottengo l'iteratore della collezione
-        Iterator<Collo> iteratorColli = colli.iterator();
-        while (iteratorColli.hasNext()) { //restituisce true se la lista ha ancora elementi
-            Collo collo = iteratorColli.next(); //restituisce il prossimo elemento
-            boolean colloInserito = false; //controllo se sono riuscito a gestire o meno il collo
-            for (int i = 0; i < veicoli.size(); i++) {
-                Veicolo v = veicoli.get((indiceCorrente + i) % veicoli.size()); //ottengo ciclicamente il prossimo indice
-                if (v.puoEssereInserito(collo)) {
-                    colloInserito = true;
-                    indiceCorrente = (indiceCorrente + i) % veicoli.size();
-                    break;
-                }
-            }
-            if (colloInserito) {
-                iteratorColli.remove(); //il collo è stato inserito e lo rimuoviamo dalla lista
-            } else {
-                colliNonGestiti.add(collo);
-                iteratorColli.remove();
+        long acquisizione;
+        long durata;
+        int colliDaCaricare;
+        int veicoliAperti;
+        synchronized (this) {
+            acquisizione = System.nanoTime();
+            List<Collo> daCaricare = new ArrayList<>(colli.size());
+            for (Collo c; (c = colli.poll()) != null; ) {
+                daCaricare.add(c); //i colli vengono tutti inseriti o verranno inseriti in un nuovo veicolo
             }
+            colliDaCaricare = daCaricare.size();
+            veicoli.sort(Comparator.comparingInt(Veicolo::getCapienzaContainer).reversed()); //ordino in maniera descrescente per ottimizzare
+            vistaVeicoli = null;
+            daCaricare.sort(Comparator.comparingInt(Collo::getPeso).reversed());
+            List<Collo> colliNonGestiti = strategiaCaricamento.carica(daCaricare, veicoli);
+            List<Veicolo> nuoviVeicoli = fornitoreVeicoli.apriVeicoli(colliNonGestiti, this);
+            veicoli.addAll(nuoviVeicoli);
+            vistaVeicoli = null;
+            indiceResidui = null; //la strategia ha modificato i carichi, l'indice verrà ricostruito al prossimo accept
+            veicoliAperti = nuoviVeicoli.size();
+            durata = System.nanoTime() - acquisizione;
+            ultimoRisultatoCaricamento = riepilogaCaricamento(colliDaCaricare, veicoliAperti, durata);
         }
-        if (!colliNonGestiti.isEmpty()) {
-            for (Collo c : colliNonGestiti) {
-                String targaCasuale = this.generaTargaCasuale();
-                TipoVeicolo tipoCasuale = this.generaTipoVeicoloCasuale();
-                Veicolo nuovoVeicolo = new Veicolo(targaCasuale, tipoCasuale, c.getPeso(), this);
-                veicoli.add(nuovoVeicolo);
-                this.inserisciInMappa(c, nuovoVeicolo);
-            }
+        if (Metriche.ABILITATE) {
+            DURATA_LOCK.registra(System.nanoTime() - acquisizione); //dall'acquisizione al rilascio del lock
+            DURATA_CARICAMENTO.registra(durata);
+            COLLI_CARICATI.add(colliDaCaricare);
+            VEICOLI_APERTI.add(veicoliAperti);
         }
+    }
 
+    private RisultatoCaricamento riepilogaCaricamento(int colliCaricati, int veicoliAperti, long durata) {
+        int veicoliUtilizzati = 0;
+        long caricoTotale = 0;
+        long capienzaUtilizzata = 0;
+        for (Veicolo v : veicoli) {
+            if (v.getCaricoCorrente() > 0) {
+                veicoliUtilizzati++;
+                caricoTotale += v.getCaricoCorrente();
+                capienzaUtilizzata += v.getCapienzaContainer();
+            }
+        }
+        return new RisultatoCaricamento(colliCaricati, veicoliUtilizzati, veicoliAperti, caricoTotale, capienzaUtilizzata, durata);
     }
 }
 
@@ -0,0 +1,102 @@
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+/**
+ * La classe {@code Credenziale} conserva la password di un {@link Destinatario} sotto forma di hash con sale,
+ * così che la password in chiaro non resti in memoria dopo l'importazione.
+ *
+ * <p>
+ * L'hash è calcolato con PBKDF2 (HMAC-SHA256) su un sale casuale di 16 byte. Il numero di iterazioni rende
+ * costoso ogni tentativo e si configura con la proprietà di sistema {@code logistica.credenziali.iterazioni}
+ * (default 20000); ogni credenziale conserva il numero di iterazioni con cui è stata calcolata. Il confronto
+ * degli hash avviene in tempo costante.
+ * </p>
+ *
+ * @see ArchivioCredenziali
+ */
+public final class Credenziale {
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+    private static final int ITERAZIONI = Integer.getInteger("logistica.credenziali.iterazioni", 20_000);
+    private static final int BYTE_SALE = 16;
+    private static final int BIT_HASH = 256;
+    private static final SecureRandom CASUALE = new SecureRandom();
+
+    private final byte[] sale;
+    private final byte[] hash;
+    private final int iterazioni;
+
+    /**
+     * Crea una credenziale a partire da valori già calcolati, ad esempio letti da uno snapshot.
+     * @param sale il sale usato per calcolare l'hash.
+     * @param hash l'hash della password.
+     * @param iterazioni il numero di iterazioni con cui è stato calcolato l'hash.
+     */
+    public Credenziale(byte[] sale, byte[] hash, int iterazioni) {
+        this.sale = sale.clone();
+        this.hash = hash.clone();
+        this.iterazioni = iterazioni;
+    }
+
+    /**
+     * Calcola la credenziale di una password con un nuovo sale casuale.
+     * @param password la password in chiaro; l'array non viene modificato.
+     * @return la credenziale della password.
+     */
+    public static Credenziale crea(char[] password) {
+        byte[] sale = new byte[BYTE_SALE];
+        CASUALE.nextBytes(sale);
+        return new Credenziale(sale, deriva(password, sale, ITERAZIONI), ITERAZIONI);
+    }
+
+    /**
+     * Verifica se la password corrisponde alla credenziale, confrontando gli hash in tempo costante.
+     * @param password la password da verificare.
+     * @return true se la password è corretta.
+     */
+    public boolean verifica(char[] password) {
+        return MessageDigest.isEqual(hash, deriva(password, sale, iterazioni));
+    }
+
+    /**
+     * Ritorna una copia del sale della credenziale.
+     * @return il sale.
+     */
+    public byte[] getSale() {
+        return sale.clone();
+    }
+
+    /**
+     * Ritorna una copia dell'hash della password.
+     * @return l'hash.
+     */
+    public byte[] getHash() {
+        return hash.clone();
+    }
+
+    /**
+     * Ritorna il numero di iterazioni con cui è stato calcolato l'hash.
+     * @return il numero di iterazioni.
+     */
+    public int getIterazioni() {
+        return iterazioni;
+    }
+
+    private static byte[] deriva(char[] password, byte[] sale, int iterazioni) {
+        PBEKeySpec specifica = new PBEKeySpec(password, sale, iterazioni, BIT_HASH);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITMO).generateSecret(specifica).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Algoritmo " + ALGORITMO + " non disponibile", e);
+        } finally {
+            specifica.clearPassword();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Credenziale{iterazioni=" + iterazioni + ", hash=" + Arrays.hashCode(hash) + '}';
+    }
+}
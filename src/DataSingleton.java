@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 /**
  * La classe `DataSingleton` implementa il pattern Singleton per garantire che ci sia
  * una sola istanza della classe in tutto il programma e fornisce un punto di accesso
@@ -6,35 +9,105 @@
  * che si occupa di leggere e interpretare i dati da un file di testo e popolare il
  * centro di smistamento con corrieri, veicoli, destinatari e colli.
  *
+ * <p>
+ * Il caricamento dei dati viene avviato da {@link #avvia()} in un thread dedicato, di norma all'avvio del programma,
+ * e il suo avanzamento è disponibile tramite {@link #getAvanzamento()}: le interfacce grafiche attendono il
+ * {@link CompletableFuture} restituito invece di caricare i dati sull'Event Dispatch Thread.
+ * </p>
+ *
  * @see FileManager
  * @see CentroDiSmistamento
  */
 public class DataSingleton {
-    private static DataSingleton instance;
+    private static final String PERCORSO_DATI = "resource/DatiLogistica.txt";
+    private static final String PERCORSO_SNAPSHOT = "resource/DatiLogistica.snap";
+    private static final String PERCORSO_DIARIO = "resource/DatiLogistica.diario";
+    private static final AvanzamentoCaricamento AVANZAMENTO = new AvanzamentoCaricamento();
+    private static CompletableFuture<DataSingleton> caricamento;
     private FileManager fileManager;
+    private OsservatoreManifest osservatoreManifest;
+    private DiarioTransizioni diarioTransizioni;
 
     /**
      * Costruttore privato per impedire l'istanziazione diretta di oggetti.
-     * Inizializza il {@link FileManager} e carica i dati dal file.
+     * Inizializza il {@link FileManager} e carica i dati dallo snapshot binario se è aggiornato rispetto
+     * al file di testo; altrimenti carica i dati dal file in parallelo e salva un nuovo snapshot.
+     * Riporta poi ogni collo all'ultima fase registrata nel {@link DiarioTransizioni}, in cui da quel momento
+     * vengono registrati i nuovi cambi di stato; il diario viene chiuso alla terminazione della JVM.
+     * Infine avvia un {@link OsservatoreManifest} che acquisisce le righe aggiunte in seguito al file,
+     * a meno che la proprietà di sistema {@code logistica.manifest.osserva} sia impostata a false.
      */
     private DataSingleton() {
         CentroDiSmistamento centroDiSmistamento = new CentroDiSmistamento();
-        fileManager = new FileManager("resource/DatiLogistica.txt", centroDiSmistamento);
-        fileManager.caricaDatiDaFile();
+        fileManager = new FileManager(PERCORSO_DATI, centroDiSmistamento, AVANZAMENTO);
+        if (!fileManager.caricaSnapshot(PERCORSO_SNAPSHOT)) {
+            fileManager.caricaDatiDaFileParallelo();
+            fileManager.salvaSnapshot(PERCORSO_SNAPSHOT);
+        }
+        AVANZAMENTO.setFase(AvanzamentoCaricamento.Fase.DIARIO);
+        try {
+            diarioTransizioni = new DiarioTransizioni(Path.of(PERCORSO_DIARIO), fileManager.getColli());
+            diarioTransizioni.riproduci();
+            centroDiSmistamento.setDiarioTransizioni(diarioTransizioni);
+            diarioTransizioni.avvia();
+            Runtime.getRuntime().addShutdownHook(new Thread(diarioTransizioni::chiudi, "chiusura-diario"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (Boolean.parseBoolean(System.getProperty("logistica.manifest.osserva", "true"))) {
+            osservatoreManifest = new OsservatoreManifest(fileManager, Path.of(PERCORSO_DATI));
+            try {
+                osservatoreManifest.avvia();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        AVANZAMENTO.setFase(AvanzamentoCaricamento.Fase.COMPLETATO);
+    }
+
+    /**
+     * Avvia il caricamento dei dati in un thread dedicato, se non è già stato avviato, e ritorna il future
+     * che viene completato con l'istanza del Singleton al termine del caricamento, oppure con l'eccezione che
+     * lo ha interrotto. Le chiamate successive ritornano lo stesso future.
+     *
+     * @return il future del caricamento dei dati.
+     */
+    public static synchronized CompletableFuture<DataSingleton> avvia() {
+        if (caricamento == null) {
+            CompletableFuture<DataSingleton> future = new CompletableFuture<>();
+            Thread thread = new Thread(() -> {
+                try {
+                    future.complete(new DataSingleton());
+                } catch (RuntimeException | Error e) {
+                    e.printStackTrace();
+                    future.completeExceptionally(e);
+                }
+            }, "caricamento-dati");
+            thread.start();
+            caricamento = future;
+        }
+        return caricamento;
     }
 
     /**
      * Fornisce l'unico punto di accesso per ottenere l'istanza del Singleton.
-     * Se l'istanza non è stata ancora creata, la crea e la restituisce.
-     * Altrimenti, restituisce l'istanza esistente.
+     * Se il caricamento dei dati non è stato ancora avviato, lo avvia tramite {@link #avvia()};
+     * in ogni caso attende che sia terminato e restituisce l'istanza.
+     * Dall'Event Dispatch Thread conviene invece attendere il future di {@link #avvia()}.
      *
      * @return L'unica istanza di {@link DataSingleton}.
      */
     public static DataSingleton getInstance() {
-        if (instance == null) {
-            instance = new DataSingleton();
-        }
-        return instance;
+        return avvia().join();
+    }
+
+    /**
+     * Ritorna l'avanzamento del caricamento dei dati, disponibile anche prima che il caricamento sia terminato.
+     *
+     * @return l'avanzamento del caricamento dei dati.
+     */
+    public static AvanzamentoCaricamento getAvanzamento() {
+        return AVANZAMENTO;
     }
     /**
      * Restituisce l'oggetto {@link FileManager} associato al Singleton.
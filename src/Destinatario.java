@@ -1,6 +1,13 @@
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 /**
  * Rappresenta un destinatario all'interno del sistema di spedizione.
  *
@@ -16,6 +23,19 @@ import java.util.Objects;
  * approccio semplifica la logica di tracciamento e riduce le dipendenze tra le classi.
  * </p>
  *
+ * <p>
+ * Oltre alla lista dei colli nell'ordine di arrivo, il destinatario mantiene degli indici dei propri colli per
+ * codice di spedizione, per fase corrente e per mittente, così che anche un destinatario con migliaia di colli
+ * possa cercarli in tempo costante e consultarli una pagina alla volta. L'indice per fase viene aggiornato dal
+ * {@link Collo} a ogni cambio di stato in tempo costante; in cambio i suoi colli non hanno un ordine stabile
+ * (vedi {@link #getPagina(FaseCollo, int, int)}). Tutti gli indici possono essere letti da più thread senza lock.
+ * </p>
+ *
+ * <p>
+ * I cambi di stato e i nuovi colli vengono inoltre pubblicati agli {@link AscoltatoreTransizioni} iscritti,
+ * così che le interfacce possano aggiornarsi senza interrogare periodicamente il {@link Mediator}.
+ * </p>
+ *
  * @see Mediator
  * @see Collo
  */
@@ -24,8 +44,12 @@ public class Destinatario {
     private String cognome;
     private String indirizzo;
     private String emaiL;
-    private String password;
+    private Credenziale credenziale;
     private List<Collo> colliAssociati;
+    private Map<String, Collo> colliPerCodice; //codice di spedizione
+    private Map<FaseCollo, Set<Collo>> colliPerFase;
+    private Map<String, List<Collo>> colliPerMittente;
+    private List<AscoltatoreTransizioni> ascoltatori;
     private Mediator mediator;
 
     /**
@@ -34,21 +58,42 @@ public class Destinatario {
      * @param cognome Il cognome del destinatario.
      * @param indirizzo indirizzo L'indirizzo del destinatario.
      * @param emaiL L'indirizzo email del destinatario.
-     * @param password  La password del destinatario per eventuali operazioni autenticate.
+     * @param password  La password del destinatario per eventuali operazioni autenticate; ne viene conservato solo l'hash.
      * @param mediator Il mediatore utilizzato per tracciare i colli.
      */
     public Destinatario(String nome, String cognome, String indirizzo, String emaiL, String password, Mediator mediator) {
+        this(nome, cognome, indirizzo, emaiL, Credenziale.crea(password.toCharArray()), mediator);
+    }
+
+    /**
+     * Crea un nuovo destinatario la cui password è già stata trasformata in una {@link Credenziale}.
+     * @param nome  Il nome del destinatario.
+     * @param cognome Il cognome del destinatario.
+     * @param indirizzo indirizzo L'indirizzo del destinatario.
+     * @param emaiL L'indirizzo email del destinatario.
+     * @param credenziale La credenziale con l'hash della password del destinatario.
+     * @param mediator Il mediatore utilizzato per tracciare i colli.
+     */
+    public Destinatario(String nome, String cognome, String indirizzo, String emaiL, Credenziale credenziale, Mediator mediator) {
         this.nome = nome;
         this.cognome = cognome;
         this.indirizzo = indirizzo;
         this.emaiL = emaiL;
-        this.password = password;
+        this.credenziale = credenziale;
         this.mediator = mediator;
-        this.colliAssociati = new ArrayList<>();
+        this.colliAssociati = new ListaAppendOnly<>(); //letta dall'interfaccia grafica mentre vengono aggiunti colli
+        this.colliPerCodice = new ConcurrentHashMap<>();
+        this.colliPerFase = new EnumMap<>(FaseCollo.class); //le chiavi non cambiano più dopo la costruzione
+        for (FaseCollo fase : FaseCollo.values()) {
+            colliPerFase.put(fase, ConcurrentHashMap.newKeySet());
+        }
+        this.colliPerMittente = new ConcurrentHashMap<>();
+        this.ascoltatori = new CopyOnWriteArrayList<>(); //iscrizioni rare, notifiche frequenti
     }
 
     /**
      * Restituisce la lista dei colli associati a questo destinatario.
+     * La lista può essere letta e iterata da qualunque thread senza sincronizzazione.
      * @return Una lista di {@link Collo} associati a questo destinatario.
      */
     public List<Collo> getColliAssociati() {
@@ -62,14 +107,161 @@ public class Destinatario {
      */
     public void aggiungiColliAssociati(Collo collo) {
         colliAssociati.add(collo);
+        colliPerCodice.putIfAbsent(collo.getCodiceSpedizione(), collo);
+        colliPerFase.get(collo.getFase()).add(collo);
+        colliPerMittente.computeIfAbsent(collo.getMittente(), m -> new ListaAppendOnly<>()).add(collo);
+        notifica(collo, null, collo.getFase());
+    }
+
+    /**
+     * Sposta il collo nell'indice della sua nuova fase e notifica gli ascoltatori iscritti. Viene invocato
+     * dal {@link Collo} quando cambia stato; i colli non ancora associati al destinatario vengono ignorati.
+     * @param collo il collo che ha cambiato stato.
+     * @param precedente la fase in cui si trovava il collo.
+     * @param corrente la fase in cui si trova ora il collo.
+     */
+    void aggiornaFase(Collo collo, FaseCollo precedente, FaseCollo corrente) {
+        if (colliPerFase.get(precedente).remove(collo)) {
+            colliPerFase.get(corrente).add(collo);
+            notifica(collo, precedente, corrente);
+        }
+    }
+
+    /**
+     * Iscrive un ascoltatore ai cambi di stato dei colli di questo destinatario e ai colli che gli vengono aggiunti.
+     * @param ascoltatore l'ascoltatore da iscrivere.
+     */
+    public void iscrivi(AscoltatoreTransizioni ascoltatore) {
+        ascoltatori.add(ascoltatore);
+    }
+
+    /**
+     * Rimuove l'iscrizione di un ascoltatore.
+     * @param ascoltatore l'ascoltatore da rimuovere.
+     */
+    public void disiscrivi(AscoltatoreTransizioni ascoltatore) {
+        ascoltatori.remove(ascoltatore);
+    }
+
+    private void notifica(Collo collo, FaseCollo precedente, FaseCollo corrente) {
+        if (ascoltatori.isEmpty()) {
+            return;
+        }
+        for (AscoltatoreTransizioni ascoltatore : ascoltatori) {
+            ascoltatore.transizione(collo, precedente, corrente);
+        }
+    }
+
+    /**
+     * Cerca tra i colli del destinatario quello con il codice di spedizione indicato.
+     * @param codiceSpedizione il codice di spedizione del collo.
+     * @return il {@link Collo} corrispondente, oppure null se il destinatario non ha colli con quel codice.
+     */
+    public Collo getCollo(String codiceSpedizione) {
+        return colliPerCodice.get(codiceSpedizione);
+    }
+
+    /**
+     * Restituisce i colli del destinatario che si trovano nella fase indicata. L'insieme non è modificabile
+     * e riflette i cambi di stato successivi.
+     * @param fase la fase del ciclo di spedizione.
+     * @return l'insieme dei colli che si trovano nella fase.
+     */
+    public Set<Collo> getColli(FaseCollo fase) {
+        return Collections.unmodifiableSet(colliPerFase.get(fase));
+    }
+
+    /**
+     * Restituisce il numero di colli del destinatario che si trovano nella fase indicata.
+     * @param fase la fase del ciclo di spedizione.
+     * @return il numero di colli nella fase.
+     */
+    public int contaColli(FaseCollo fase) {
+        return colliPerFase.get(fase).size();
+    }
+
+    /**
+     * Restituisce i colli del destinatario spediti dal mittente indicato, nell'ordine di arrivo.
+     * @param mittente il mittente dei colli.
+     * @return la lista dei colli del mittente, vuota se non ce ne sono.
+     */
+    public List<Collo> getColliDelMittente(String mittente) {
+        List<Collo> colli = colliPerMittente.get(mittente);
+        return colli == null ? List.of() : Collections.unmodifiableList(colli);
+    }
+
+    /**
+     * Restituisce una pagina dei colli del destinatario, nell'ordine di arrivo. Viene copiata solo la pagina
+     * richiesta, in tempo proporzionale alla sua dimensione.
+     * @param pagina il numero della pagina, a partire da 0.
+     * @param dimensione il numero massimo di colli per pagina.
+     * @return i colli della pagina, vuota se la pagina è oltre l'ultimo collo.
+     */
+    public List<Collo> getPagina(int pagina, int dimensione) {
+        return pagina(colliAssociati, pagina, dimensione);
+    }
+
+    /**
+     * Restituisce una pagina dei colli del destinatario spediti dal mittente indicato, nell'ordine di arrivo.
+     * @param mittente il mittente dei colli.
+     * @param pagina il numero della pagina, a partire da 0.
+     * @param dimensione il numero massimo di colli per pagina.
+     * @return i colli della pagina, vuota se la pagina è oltre l'ultimo collo.
+     */
+    public List<Collo> getPagina(String mittente, int pagina, int dimensione) {
+        return pagina(getColliDelMittente(mittente), pagina, dimensione);
+    }
+
+    /**
+     * Restituisce una pagina dei colli del destinatario che si trovano nella fase indicata.
+     *
+     * <p>
+     * Diversamente dalle pagine per arrivo e per mittente, questa pagina non ha accesso diretto: per
+     * raggiungerla vengono scorsi i colli delle pagine precedenti, per cui il costo cresce con il numero della
+     * pagina, anche se viene copiata solo la pagina richiesta. L'ordine dei colli di una fase non è quello di
+     * arrivo ma dipende dal loro hash, e le posizioni si spostano ogni volta che un collo entra o esce dalla
+     * fase: pagine consecutive lette mentre i colli cambiano stato possono quindi ripetere o saltare dei colli.
+     * Per esaminare una sola volta tutti i colli di una fase conviene iterare {@link #getColli(FaseCollo)}.
+     * </p>
+     * @param fase la fase del ciclo di spedizione.
+     * @param pagina il numero della pagina, a partire da 0.
+     * @param dimensione il numero massimo di colli per pagina.
+     * @return i colli della pagina, vuota se la pagina è negativa o oltre l'ultimo collo o se la dimensione
+     *         non è positiva.
+     */
+    public List<Collo> getPagina(FaseCollo fase, int pagina, int dimensione) {
+        if (pagina < 0 || dimensione <= 0) {
+            return List.of();
+        }
+        long daSaltare = (long) pagina * dimensione;
+        List<Collo> risultato = new ArrayList<>(Math.min(dimensione, 64));
+        for (Collo c : colliPerFase.get(fase)) {
+            if (daSaltare > 0) {
+                daSaltare--;
+            } else if (risultato.size() < dimensione) {
+                risultato.add(c);
+            } else {
+                break;
+            }
+        }
+        return risultato;
+    }
+
+    private static List<Collo> pagina(List<Collo> colli, int pagina, int dimensione) {
+        int dimensioneLista = colli.size(); //letta una volta: la lista può crescere nel frattempo
+        long inizio = (long) pagina * dimensione;
+        if (pagina < 0 || dimensione <= 0 || inizio >= dimensioneLista) {
+            return List.of();
+        }
+        return List.copyOf(colli.subList((int) inizio, (int) Math.min(inizio + dimensione, dimensioneLista)));
     }
 
     /**
-     * Ritorna la password del Destinatario.
-     * @return password la password del Destinatario.
+     * Ritorna la credenziale del Destinatario, che conserva l'hash della sua password.
+     * @return credenziale la credenziale del Destinatario.
      */
-    public String getPassword() {
-        return password;
+    public Credenziale getCredenziale() {
+        return credenziale;
     }
 
     /**
@@ -82,6 +274,15 @@ public class Destinatario {
         return stato;
     }
 
+    /**
+     * Traccia più colli di questo destinatario con una sola chiamata al mediatore associato.
+     * @param codici I codici di spedizione dei colli da tracciare.
+     * @return Una mappa dal codice di spedizione allo stato attuale del collo.
+     */
+    public Map<String, String> tracciaColli(Collection<String> codici) {
+        return mediator.tracciaColli(this, codici);
+    }
+
     /**
      * Ritorna il nome del destinatario.
      * @return nome il nome del destinatario.
@@ -90,6 +291,30 @@ public class Destinatario {
         return nome;
     }
 
+    /**
+     * Ritorna il cognome del destinatario.
+     * @return cognome il cognome del destinatario.
+     */
+    public String getCognome() {
+        return cognome;
+    }
+
+    /**
+     * Ritorna l'indirizzo del destinatario.
+     * @return indirizzo l'indirizzo del destinatario.
+     */
+    public String getIndirizzo() {
+        return indirizzo;
+    }
+
+    /**
+     * Ritorna l'email del destinatario, che lo identifica in modo univoco.
+     * @return emaiL l'email del destinatario.
+     */
+    public String getEmail() {
+        return emaiL;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,375 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * La classe {@code DiarioTransizioni} rende durevoli i cambi di stato dei colli, così che dopo un riavvio ogni collo
+ * riprenda dalla fase raggiunta invece di tornare al {@link Ritiro}.
+ *
+ * <p>
+ * Il diario è un file in sola aggiunta di record di dimensione fissa:
+ * <pre>
+ * int magic, int versione
+ * per ogni transizione: long chiave del collo, long istante in millisecondi, int fase, int di controllo
+ * </pre>
+ * La chiave è un hash a 64 bit del codice di spedizione, che resta uguale tra un avvio e l'altro. Un record
+ * incompleto o corrotto alla fine del file, dovuto a un'interruzione durante la scrittura, viene scartato.
+ * </p>
+ *
+ * <p>
+ * {@link #registra(Collo)} non attende il disco: i record vengono accumulati in un buffer e un thread dedicato
+ * li scrive in blocco con un solo {@link FileChannel#force(boolean)} per gruppo (group commit), al più ogni
+ * {@code logistica.diario.intervallo} millisecondi (default 20). Se il buffer è pieno chi registra attende la
+ * scrittura del gruppo precedente. Quando il file supera {@code logistica.diario.compattazione} record
+ * (default 1000000) e contiene più del doppio dei record necessari, viene riscritto con un solo record per ogni
+ * collo che ha lasciato il {@link Ritiro}.
+ * </p>
+ *
+ * @see Corriere#avanzaCollo(Collo)
+ * @see DataSingleton
+ */
+public class DiarioTransizioni {
+    private static final int MAGIC = 0x4C4F4754; //"LOGT"
+    private static final int VERSIONE = 1;
+    private static final int DIMENSIONE_INTESTAZIONE = 8;
+    private static final int DIMENSIONE_RECORD = 24;
+    private static final long INTERVALLO_MS = Long.getLong("logistica.diario.intervallo", 20);
+    private static final long SOGLIA_COMPATTAZIONE = Long.getLong("logistica.diario.compattazione", 1_000_000);
+    private static final int RECORD_PER_BUFFER = 1 << 14;
+    private static final LongAdder RECORD_PERSI = Metriche.getInstance().contatore("diario.record_persi");
+
+    private final Path percorso;
+    private final Iterable<Collo> colli;
+    private FileChannel canale; //usato solo dal thread di scrittura dopo l'avvio
+    private ByteBuffer inAttesa; //record registrati e non ancora scritti, protetto dal lock
+    private ByteBuffer inScrittura;
+    private long registrati; //numero di record registrati
+    private long durevoli; //numero di record scritti e sincronizzati sul disco
+    private long persi; //numero di record non registrati perché il diario era chiuso o il chiamante interrotto
+    private long recordNelFile;
+    private long sogliaCompattazione;
+    private boolean chiuso;
+    private Thread scrittore;
+
+    /**
+     * Apre il diario indicato, creandolo se non esiste.
+     * @param percorso il file del diario.
+     * @param colli i colli di cui il diario registra le transizioni, usati per la riproduzione e la compattazione;
+     *              la collezione deve riflettere i colli aggiunti in seguito.
+     * @throws IOException se il file non può essere aperto o non è un diario.
+     */
+    public DiarioTransizioni(Path percorso, Iterable<Collo> colli) throws IOException {
+        this.percorso = percorso;
+        this.colli = colli;
+        this.inAttesa = ByteBuffer.allocateDirect(RECORD_PER_BUFFER * DIMENSIONE_RECORD);
+        this.inScrittura = ByteBuffer.allocateDirect(RECORD_PER_BUFFER * DIMENSIONE_RECORD);
+        this.canale = FileChannel.open(percorso, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (canale.size() < DIMENSIONE_INTESTAZIONE) {
+            canale.truncate(0);
+            scriviIntestazione(canale);
+            canale.force(true);
+        } else {
+            ByteBuffer intestazione = ByteBuffer.allocate(DIMENSIONE_INTESTAZIONE);
+            canale.read(intestazione, 0);
+            intestazione.flip();
+            if (intestazione.getInt() != MAGIC || intestazione.getInt() != VERSIONE) {
+                canale.close();
+                throw new IOException("Il file non è un diario delle transizioni: " + percorso);
+            }
+        }
+        this.sogliaCompattazione = SOGLIA_COMPATTAZIONE;
+    }
+
+    /**
+     * Riporta ogni collo all'ultima fase registrata nel diario. Va invocato prima di {@link #avvia()}.
+     * Eventuali record incompleti o corrotti alla fine del file vengono eliminati.
+     * @return il numero di colli la cui fase è stata ripristinata.
+     * @throws IOException se il diario non può essere letto.
+     */
+    public int riproduci() throws IOException {
+        Map<Long, Collo> perChiave = new HashMap<>();
+        for (Collo c : colli) {
+            Collo precedente = perChiave.putIfAbsent(chiave(c.getCodiceSpedizione()), c);
+            if (precedente != null && precedente != c && !precedente.getCodiceSpedizione().equals(c.getCodiceSpedizione())) {
+                new IllegalStateException("Chiave del diario ambigua per i colli " + precedente.getCodiceSpedizione()
+                        + " e " + c.getCodiceSpedizione()).printStackTrace();
+            }
+        }
+        Map<Collo, Integer> ultimaFase = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_PER_BUFFER * DIMENSIONE_RECORD);
+        long posizione = DIMENSIONE_INTESTAZIONE;
+        long dimensione = canale.size();
+        boolean integro = true;
+        while (integro && posizione + DIMENSIONE_RECORD <= dimensione) {
+            buffer.clear();
+            canale.read(buffer, posizione);
+            buffer.flip();
+            while (buffer.remaining() >= DIMENSIONE_RECORD) {
+                long chiave = buffer.getLong();
+                long istante = buffer.getLong();
+                int fase = buffer.getInt();
+                int controllo = buffer.getInt();
+                if (controllo != checksum(chiave, istante, fase) || fase < 0 || fase >= FaseCollo.numeroFasi()) {
+                    integro = false;
+                    break;
+                }
+                posizione += DIMENSIONE_RECORD;
+                Collo collo = perChiave.get(chiave);
+                if (collo != null) {
+                    ultimaFase.put(collo, fase);
+                }
+            }
+        }
+        if (posizione < dimensione) {
+            new IOException("Scartati " + (dimensione - posizione) + " byte incompleti alla fine del diario " + percorso)
+                    .printStackTrace();
+            canale.truncate(posizione);
+        }
+        recordNelFile = (posizione - DIMENSIONE_INTESTAZIONE) / DIMENSIONE_RECORD;
+        sogliaCompattazione = Math.max(SOGLIA_COMPATTAZIONE, 2 * ultimaFase.size());
+        for (Map.Entry<Collo, Integer> voce : ultimaFase.entrySet()) {
+            Collo collo = voce.getKey();
+            synchronized (collo) {
+                if (collo.getFase().ordinal() != voce.getValue()) {
+                    collo.setStato(FaseCollo.daOrdinale(voce.getValue()).getStato());
+                }
+            }
+        }
+        return ultimaFase.size();
+    }
+
+    /**
+     * Avvia il thread che scrive i record registrati sul disco.
+     */
+    public synchronized void avvia() {
+        scrittore = new Thread(this::scrivi, "diario-transizioni");
+        scrittore.setDaemon(true);
+        scrittore.start();
+    }
+
+    /**
+     * Registra la fase corrente del collo. Il record diventa durevole con la scrittura del gruppo successivo;
+     * le registrazioni dello stesso collo vanno effettuate nell'ordine in cui avvengono le transizioni.
+     * Se il diario è chiuso o il thread viene interrotto mentre attende spazio nel buffer il record va perso:
+     * viene contato in {@link #getRecordPersi()} e il primo viene segnalato.
+     * @param collo il collo che ha cambiato fase.
+     */
+    public void registra(Collo collo) {
+        long chiave = chiave(collo.getCodiceSpedizione());
+        long istante = System.currentTimeMillis();
+        int fase = collo.getFase().ordinal();
+        synchronized (this) {
+            while (!inAttesa.hasRemaining() && !chiuso) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    perso(collo, e);
+                    return;
+                }
+            }
+            if (chiuso) {
+                perso(collo, null);
+                return;
+            }
+            inAttesa.putLong(chiave).putLong(istante).putInt(fase).putInt(checksum(chiave, istante, fase));
+            registrati++;
+            if (inAttesa.position() == DIMENSIONE_RECORD) {
+                notifyAll(); //primo record del gruppo, sveglia il thread di scrittura
+            }
+        }
+    }
+
+    /**
+     * Attende che tutti i record registrati finora siano stati scritti e sincronizzati sul disco.
+     * @throws InterruptedException se l'attesa viene interrotta.
+     */
+    public synchronized void sincronizza() throws InterruptedException {
+        long obiettivo = registrati;
+        while (durevoli < obiettivo && !chiuso) {
+            wait();
+        }
+    }
+
+    /**
+     * Ritorna il numero di record andati persi perché registrati a diario chiuso o da un thread interrotto.
+     * @return il numero di record persi.
+     */
+    public synchronized long getRecordPersi() {
+        return persi;
+    }
+
+    //conta un record non registrato, segnalando solo il primo per non inondare l'output a diario chiuso
+    private void perso(Collo collo, InterruptedException causa) {
+        persi++;
+        if (Metriche.ABILITATE) {
+            RECORD_PERSI.increment();
+        }
+        if (persi == 1) {
+            new IllegalStateException("Transizione del collo " + collo.getCodiceSpedizione()
+                    + " non registrata nel diario " + percorso, causa).printStackTrace();
+        }
+    }
+
+    /**
+     * Scrive i record ancora in attesa e chiude il diario.
+     */
+    public void chiudi() {
+        Thread thread;
+        synchronized (this) {
+            if (chiuso) {
+                return;
+            }
+            chiuso = true;
+            notifyAll();
+            thread = scrittore;
+        }
+        try {
+            if (thread != null) {
+                thread.join();
+            } else {
+                scriviGruppo(); //diario mai avviato
+            }
+            canale.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void scrivi() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (inAttesa.position() == 0 && !chiuso) {
+                        wait();
+                    }
+                    if (inAttesa.position() == 0) {
+                        return; //chiuso e nulla da scrivere
+                    }
+                }
+                long inizio = System.currentTimeMillis();
+                scriviGruppo();
+                if (recordNelFile >= sogliaCompattazione) {
+                    compatta();
+                }
+                long attesa = INTERVALLO_MS - (System.currentTimeMillis() - inizio);
+                if (attesa > 0) {
+                    Thread.sleep(attesa); //accumula le registrazioni del gruppo successivo
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            synchronized (this) {
+                chiuso = true; //le registrazioni successive vengono ignorate invece di bloccare i chiamanti
+                notifyAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //scrive i record in attesa con un solo force
+    private void scriviGruppo() throws IOException {
+        long gruppo;
+        synchronized (this) {
+            ByteBuffer pieno = inAttesa;
+            inAttesa = inScrittura;
+            inScrittura = pieno;
+            gruppo = registrati;
+            notifyAll(); //il buffer vuoto è di nuovo disponibile
+        }
+        inScrittura.flip();
+        long record = inScrittura.remaining() / DIMENSIONE_RECORD;
+        long posizione = canale.size();
+        while (inScrittura.hasRemaining()) {
+            posizione += canale.write(inScrittura, posizione);
+        }
+        inScrittura.clear();
+        canale.force(false);
+        recordNelFile += record;
+        synchronized (this) {
+            durevoli = gruppo;
+            notifyAll();
+        }
+    }
+
+    //riscrive il diario con un record per ogni collo che ha lasciato il ritiro, poi sostituisce il file
+    private void compatta() throws IOException {
+        Path temporaneo = percorso.resolveSibling(percorso.getFileName() + ".tmp");
+        long scritti = 0;
+        long istante = System.currentTimeMillis();
+        try (FileChannel nuovo = FileChannel.open(temporaneo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            scriviIntestazione(nuovo);
+            nuovo.position(DIMENSIONE_INTESTAZIONE);
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_PER_BUFFER * DIMENSIONE_RECORD);
+            for (Collo c : colli) {
+                int fase = c.getFase().ordinal();
+                if (fase == FaseCollo.RITIRO.ordinal()) {
+                    continue;
+                }
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        nuovo.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                long chiave = chiave(c.getCodiceSpedizione());
+                buffer.putLong(chiave).putLong(istante).putInt(fase).putInt(checksum(chiave, istante, fase));
+                scritti++;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                nuovo.write(buffer);
+            }
+            nuovo.force(true);
+        }
+        canale.close();
+        Files.move(temporaneo, percorso, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        canale = FileChannel.open(percorso, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recordNelFile = scritti;
+        sogliaCompattazione = Math.max(SOGLIA_COMPATTAZIONE, 2 * scritti);
+    }
+
+    private static void scriviIntestazione(FileChannel canale) throws IOException {
+        ByteBuffer intestazione = ByteBuffer.allocate(DIMENSIONE_INTESTAZIONE).putInt(MAGIC).putInt(VERSIONE);
+        intestazione.flip();
+        while (intestazione.hasRemaining()) {
+            canale.write(intestazione, intestazione.position());
+        }
+    }
+
+    //controllo di integrità del record; un record di soli zeri, lasciato da un file esteso ma non scritto, non è valido
+    private static int checksum(long chiave, long istante, int fase) {
+        long h = (chiave ^ 0x9e3779b97f4a7c15L) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 31) ^ istante) * 0x94d049bb133111ebL;
+        h = (h ^ (h >>> 29) ^ fase) * 0xbf58476d1ce4e5b9L;
+        return (int) (h ^ (h >>> 32)) | 1;
+    }
+
+    /**
+     * Calcola la chiave con cui un collo viene registrato nel diario: un hash FNV-1a a 64 bit del codice di
+     * spedizione, rimescolato per distribuire uniformemente i bit.
+     * @param codiceSpedizione il codice di spedizione del collo.
+     * @return la chiave del collo.
+     */
+    static long chiave(String codiceSpedizione) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < codiceSpedizione.length(); i++) {
+            h ^= codiceSpedizione.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Tabella delle fasi del ciclo di spedizione di un {@link Collo}.
+ *
+ * <p>
+ * Ogni fase è associata all'unica istanza condivisa (flyweight) dello {@link StatoCollo} che ne implementa il
+ * comportamento. Gli stati non hanno campi propri, per cui la stessa istanza può essere usata da tutti i colli;
+ * il {@link Collo} memorizza soltanto l'ordinale della sua fase in un byte, così che una transizione di stato
+ * non allochi alcun oggetto.
+ * </p>
+ *
+ * @see StatoCollo
+ * @see Collo
+ */
+public enum FaseCollo {
+    RITIRO(Ritiro.ISTANZA),
+    IN_TRANSITO(InTransito.ISTANZA),
+    IN_ENTRATA(InEntrata.ISTANZA),
+    IN_CONSEGNA(InConsegna.ISTANZA),
+    CONSEGNATO(Consegnato.ISTANZA);
+
+    private static final FaseCollo[] FASI = values(); //copia unica, values() ne crea una nuova a ogni chiamata
+    private final StatoCollo stato;
+
+    /**
+     * Costruttore dell'enumerazione che associa la fase all'istanza condivisa del suo stato.
+     * @param stato l'istanza condivisa dello stato.
+     */
+    FaseCollo(StatoCollo stato) {
+        this.stato = stato;
+    }
+
+    /**
+     * Restituisce l'istanza condivisa dello stato associato alla fase.
+     * @return lo {@link StatoCollo} della fase.
+     */
+    public StatoCollo getStato() {
+        return stato;
+    }
+
+    /**
+     * Restituisce la fase con l'ordinale indicato, senza allocare l'array di {@link #values()}.
+     * @param ordinale l'ordinale della fase.
+     * @return la fase corrispondente.
+     */
+    public static FaseCollo daOrdinale(int ordinale) {
+        return FASI[ordinale];
+    }
+
+    /**
+     * Restituisce il numero di fasi del ciclo di spedizione.
+     * @return il numero di fasi.
+     */
+    public static int numeroFasi() {
+        return FASI.length;
+    }
+}
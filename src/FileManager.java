@@ -1,21 +1,65 @@
 import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
 /**
  * La classe `FileManager` gestisce le operazioni di lettura e interpretazione dei dati
  * da un file.
- * Questa classe utilizza diverse mappe per associare e recuperare informazioni sui corrieri,
- * veicoli, colli e destinatari in base alle loro chiavi univoche.
+ * Questa classe utilizza diverse mappe per associare e recuperare informazioni sui corrieri
+ * e sui destinatari in base alle loro chiavi univoche.
+ *
+ * <p>
+ * Le stringhe che si ripetono nel file (nomi dei corrieri, mittenti ed email dei destinatari) vengono internate
+ * in una {@link TabellaSimboli}, così che tutti gli oggetti condividano la stessa copia. Corrieri e destinatari
+ * ricevono un identificativo intero progressivo, pari alla loro posizione in una lista, e vengono cercati
+ * tramite una {@link MappaInteri} che associa l'identificativo del simbolo della chiave a quello dell'oggetto.
+ * Le ricerche non richiedono lock, mentre le registrazioni sono sincronizzate sul FileManager.
+ * </p>
+ *
+ * <p>
+ * Le {@link Metriche} contano le righe interpretate da ogni caricamento completo del file, per tipo di riga,
+ * e la durata della lettura; da questi valori ricavano le righe lette al secondo per ciascun tipo.
+ * </p>
  */
 public class FileManager {
+    private static final int RIGHE_PER_AVANZAMENTO = 4096; //righe lette tra due aggiornamenti dell'avanzamento
+    private static final Istogramma DURATA_LETTURA = Metriche.getInstance().istogramma("caricamento.lettura", "ns");
+    static final LongAdder RIGHE_CORRIERE = contatoreRighe("corriere");
+    static final LongAdder RIGHE_VEICOLO = contatoreRighe("veicolo");
+    static final LongAdder RIGHE_DESTINATARIO = contatoreRighe("destinatario");
+    static final LongAdder RIGHE_COLLO = contatoreRighe("collo");
+    private static final LongAdder RIGHE_SCARTATE = Metriche.getInstance().contatore("caricamento.righe_scartate");
+
     private String percorsoFile;
     private CentroDiSmistamento centroDiSmistamento;
-    private Map<String, Corriere> corriereMap; //nome
-    private Map<String, Veicolo> veicoloMap; //codice
-    private Map<String, Collo> colloMap; //codice
-    private Map<String, Destinatario> destinatarioMap; //chiave email
+    private TabellaSimboli simboli; //stringhe ripetute: nomi dei corrieri, mittenti, email
+    private List<Corriere> corrieri; //indicizzati per identificativo
+    private List<Destinatario> destinatari; //indicizzati per identificativo
+    private MappaInteri corrieriPerNome; //simbolo del nome -> identificativo del corriere
+    private MappaInteri destinatariPerEmail; //simbolo dell'email -> identificativo del destinatario
+    private volatile Corriere ultimoCorriere; //ultimo corriere del file, a cui appartengono i colli aggiunti in coda
+    private volatile long dimensioneLetta; //byte del file già interpretati
+    private boolean aggiornamentiAttivi; //i corrieri registrati vengono pianificati subito, protetto dal FileManager
+    private final AvanzamentoCaricamento avanzamento;
 
     /**
      * Costruttore che inizializza un nuovo oggetto FileManager.
@@ -24,59 +68,245 @@ public class FileManager {
      * @param centroDiSmistamento Il centro di smistamento (mediator).
      */
     public FileManager(String percorsoFile, CentroDiSmistamento centroDiSmistamento) {
+        this(percorsoFile, centroDiSmistamento, new AvanzamentoCaricamento());
+    }
+
+    /**
+     * Costruttore che inizializza un nuovo oggetto FileManager il cui caricamento aggiorna l'avanzamento indicato,
+     * così che possa essere mostrato prima che il FileManager sia creato.
+     *
+     * @param percorsoFile Il percorso del file da cui leggere i dati.
+     * @param centroDiSmistamento Il centro di smistamento (mediator).
+     * @param avanzamento L'avanzamento da aggiornare durante il caricamento.
+     */
+    FileManager(String percorsoFile, CentroDiSmistamento centroDiSmistamento, AvanzamentoCaricamento avanzamento) {
         this.percorsoFile = percorsoFile;
         this.centroDiSmistamento = centroDiSmistamento;
-        this.corriereMap = new HashMap<>();
-        this.veicoloMap = new HashMap<>();
-        this.colloMap = new HashMap<>();
-        this.destinatarioMap = new HashMap<>();
+        this.simboli = new TabellaSimboli();
+        this.corrieri = new ListaAppendOnly<>();
+        this.destinatari = new ListaAppendOnly<>();
+        this.corrieriPerNome = new MappaInteri();
+        this.destinatariPerEmail = new MappaInteri();
+        this.avanzamento = avanzamento;
     }
     /**
      * Carica i dati dal file specificato nel percorsoFile.
-     * Questo metodo legge dai file le varie informazioni sui corrieri, veicoli, destinatari e colli.
+     * Questo metodo legge dai file le varie informazioni sui corrieri, veicoli, destinatari e colli,
+     * quindi carica i colli di ogni corriere nei suoi veicoli tramite {@link #caricaColliCorrieri()}.
+     * Un'ultima riga non terminata da un a capo è considerata ancora in scrittura e viene lasciata
+     * all'{@link OsservatoreManifest}, che la interpreta quando viene completata.
      */
     public void caricaDatiDaFile() {
-        try (FileReader fileReader = new FileReader(percorsoFile);
-             BufferedReader bufferedReader = new BufferedReader(fileReader)) {
+        long inizio = System.nanoTime();
+        avanzamento.setFase(AvanzamentoCaricamento.Fase.MANIFEST);
+        try (FileChannel canale = FileChannel.open(Path.of(percorsoFile), StandardOpenOption.READ)) {
+            //si leggono solo le righe complete presenti all'apertura: le righe aggiunte durante la lettura e
+            //un'ultima riga non ancora terminata verranno interpretate a partire da dimensioneLetta, come dopo
+            //il caricamento parallelo
+            long dimensione = CaricatoreParallelo.fineUltimaRiga(canale, canale.size());
+            avanzamento.setByteTotali(dimensione);
+            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(
+                    new FlussoLimitato(Channels.newInputStream(canale), dimensione)));
             String line;
             Corriere corriereCorrente = null;
+            int righe = 0;
+            long caratteri = 0;
             while ((line = bufferedReader.readLine()) != null) {
-                String[] parte = line.split(",");
-                String tipoInfo = parte[0];
-                if (tipoInfo.equals("corriere")) {
-                    corriereCorrente = leggiCorriere(parte);
-                } else if (tipoInfo.equals("veicolo")) {
-                    leggiVeicolo(parte, corriereCorrente);
-                } else if (tipoInfo.equals("destinatario")) {
-                    leggiDestinatario(parte);
-                } else if (tipoInfo.equals("collo")) {
-                    leggiCollo(parte, corriereCorrente);
+                corriereCorrente = leggiRiga(line.split(","), corriereCorrente, false);
+                caratteri += line.length() + 1;
+                if (++righe == RIGHE_PER_AVANZAMENTO) {
+                    avanzamento.aggiungiRighe(righe, caratteri);
+                    righe = 0;
+                    caratteri = 0;
                 }
             }
-            if (corriereCorrente != null) {
-                corriereCorrente.CaricaColli();
+            avanzamento.aggiungiRighe(righe, caratteri);
+            dimensioneLetta = dimensione;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        registraDurataLettura(inizio);
+        caricaColliCorrieri();
+    }
+
+    /**
+     * Interpreta le righe aggiunte in coda al file dopo il caricamento iniziale.
+     * Le righe "veicolo" e "collo" appartengono all'ultimo corriere letto nel file, anche se la sua riga
+     * "corriere" è stata interpretata in un caricamento precedente. Ogni nuovo collo viene inserito subito
+     * nella capacità residua dei veicoli esistenti tramite {@link Corriere#accept(Collo)}, senza ricaricare
+     * i colli già assegnati. Una riga malformata, o una riga "veicolo" o "collo" senza un corriere che la
+     * preceda, viene segnalata, contata nelle {@link Metriche} e ignorata senza interrompere l'interpretazione
+     * delle righe successive.
+     * @param righe Le nuove righe del file, nell'ordine in cui compaiono.
+     * @see OsservatoreManifest
+     */
+    public void acquisisciRighe(List<String> righe) {
+        Corriere corriereCorrente = ultimoCorriere;
+        for (String riga : righe) {
+            try {
+                corriereCorrente = leggiRiga(riga.split(","), corriereCorrente, true);
+            } catch (RuntimeException e) {
+                if (Metriche.ABILITATE) {
+                    RIGHE_SCARTATE.increment();
+                }
+                new IllegalArgumentException("Riga del manifest ignorata: " + riga, e).printStackTrace();
             }
+        }
+    }
+
+    //le righe vengono contate nelle metriche solo durante il caricamento completo del file (caricaSubito false)
+    private Corriere leggiRiga(String[] parte, Corriere corriereCorrente, boolean caricaSubito) {
+        String tipoInfo = parte[0];
+        boolean conta = Metriche.ABILITATE && !caricaSubito;
+        if (tipoInfo.equals("corriere")) {
+            if (conta) {
+                RIGHE_CORRIERE.increment();
+            }
+            return leggiCorriere(parte);
+        } else if (tipoInfo.equals("veicolo")) {
+            if (conta) {
+                RIGHE_VEICOLO.increment();
+            }
+            leggiVeicolo(parte, corriereCorrente);
+        } else if (tipoInfo.equals("destinatario")) {
+            if (conta) {
+                RIGHE_DESTINATARIO.increment();
+            }
+            leggiDestinatario(parte);
+        } else if (tipoInfo.equals("collo")) {
+            if (conta) {
+                RIGHE_COLLO.increment();
+            }
+            leggiCollo(parte, corriereCorrente, caricaSubito);
+        }
+        return corriereCorrente;
+    }
+
+    //contatore delle righe di un tipo, con l'indicatore delle righe di quel tipo lette al secondo
+    private static LongAdder contatoreRighe(String tipo) {
+        Metriche metriche = Metriche.getInstance();
+        LongAdder righe = metriche.contatore("caricamento.righe." + tipo);
+        metriche.indicatore("caricamento.righe_al_secondo." + tipo, () -> {
+            long durata = DURATA_LETTURA.getSomma();
+            return durata == 0 ? 0 : (long) (righe.sum() * 1e9 / durata);
+        });
+        return righe;
+    }
+
+    private static void registraDurataLettura(long inizio) {
+        if (Metriche.ABILITATE) {
+            DURATA_LETTURA.registra(System.nanoTime() - inizio);
+        }
+    }
+
+    /**
+     * Ritorna il numero di byte del file interpretati dall'ultimo caricamento, da cui riprendere la lettura
+     * delle righe aggiunte in seguito.
+     * @return la posizione nel file fino a cui i dati sono stati caricati.
+     */
+    public long getDimensioneLetta() {
+        return dimensioneLetta;
+    }
+
+    void setDimensioneLetta(long dimensioneLetta) {
+        this.dimensioneLetta = dimensioneLetta;
+    }
+
+    /**
+     * Ritorna l'avanzamento dei caricamenti eseguiti dal FileManager, aggiornato durante la lettura del
+     * manifest e il caricamento dei colli nei veicoli.
+     * @return l'avanzamento del caricamento dei dati.
+     */
+    public AvanzamentoCaricamento getAvanzamento() {
+        return avanzamento;
+    }
+
+    /**
+     * Carica i colli di ogni corriere nei rispettivi veicoli, eseguendo un task indipendente per ciascun corriere
+     * sul {@link ForkJoinPool} comune. I colli e i veicoli di corrieri diversi sono disgiunti, per cui i
+     * caricamenti non interferiscono tra loro e il tempo complessivo è circa quello del corriere più lento.
+     */
+    public void caricaColliCorrieri() {
+        avanzamento.setFase(AvanzamentoCaricamento.Fase.VEICOLI);
+        avanzamento.setCorrieriTotali(corrieri.size());
+        List<ForkJoinTask<?>> caricamenti = new ArrayList<>(corrieri.size());
+        for (Corriere corriere : corrieri) {
+            caricamenti.add(ForkJoinPool.commonPool().submit(() -> {
+                corriere.CaricaColli();
+                avanzamento.corriereCaricato();
+            }));
+        }
+        for (ForkJoinTask<?> caricamento : caricamenti) {
+            caricamento.join();
+        }
+    }
+
+    /**
+     * Carica i dati dal file specificato nel percorsoFile utilizzando il {@link CaricatoreParallelo}.
+     * Il file viene mappato in memoria e suddiviso in blocchi di righe complete, interpretati in parallelo;
+     * le righe "veicolo" e "collo" restano associate alla riga "corriere" che le precede nel file.
+     * A differenza di {@link #caricaDatiDaFile()}, i destinatari vengono risolti su tutto il file, per cui un
+     * collo viene caricato anche se il suo destinatario compare più avanti.
+     * Al termine i colli di ogni corriere vengono caricati nei veicoli tramite {@link #caricaColliCorrieri()}.
+     */
+    public void caricaDatiDaFileParallelo() {
+        long inizio = System.nanoTime();
+        avanzamento.setFase(AvanzamentoCaricamento.Fase.MANIFEST);
+        try {
+            new CaricatoreParallelo(percorsoFile, this).carica();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        registraDurataLettura(inizio);
+        caricaColliCorrieri();
+    }
+
+    /**
+     * Salva uno snapshot binario dei dati caricati, comprensivo dello stato dei colli e della loro
+     * assegnazione ai veicoli.
+     * @param percorsoSnapshot Il percorso del file di snapshot da scrivere.
+     * @see SnapshotBinario
+     */
+    public void salvaSnapshot(String percorsoSnapshot) {
+        try {
+            new SnapshotBinario(this).scrivi(Path.of(percorsoSnapshot), Path.of(percorsoFile));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Carica i dati da uno snapshot binario, se esiste ed è stato ottenuto dalla versione corrente del
+     * file specificato nel percorsoFile.
+     * @param percorsoSnapshot Il percorso del file di snapshot da leggere.
+     * @return true se i dati sono stati caricati dallo snapshot, false se occorre leggere il file di testo.
+     * @see SnapshotBinario
+     */
+    public boolean caricaSnapshot(String percorsoSnapshot) {
+        Path snapshot = Path.of(percorsoSnapshot);
+        if (!Files.isRegularFile(snapshot)) {
+            return false;
+        }
+        avanzamento.setFase(AvanzamentoCaricamento.Fase.SNAPSHOT);
+        try {
+            return new SnapshotBinario(this).leggi(snapshot, Path.of(percorsoFile));
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
 
     private Corriere leggiCorriere(String[] parte) {
-        String nomeCorriere = parte[1];
-        Corriere corriere = new Corriere(nomeCorriere);
-        corriereMap.put(nomeCorriere, corriere);
-        centroDiSmistamento.aggiungiCorriere(corriere);
-        return corriere;
+        return registraCorriere(parte[1]);
     }
 
     private void leggiVeicolo(String[] parte, Corriere corriere) {
         String codice = parte[1];
         TipoVeicolo tipoVeicolo = TipoVeicolo.valueOf(parte[2]);
         int capacitaConteiner = Integer.parseInt(parte[3]);
-        Veicolo veicolo = new Veicolo(codice, tipoVeicolo, capacitaConteiner, corriere);
-        veicoloMap.put(codice, veicolo);
-        corriere.aggiungiVeicolo(veicolo);
+        registraVeicolo(new Veicolo(codice, tipoVeicolo, capacitaConteiner, corriere), corriere);
     }
 
     private void leggiDestinatario(String[] parte) {
@@ -85,41 +315,232 @@ public class FileManager {
         String indirizzo = parte[3];
         String email = parte[4];
         String password = parte[5];
-        Destinatario destinatario = new Destinatario(nome, cognnome, indirizzo, email, password, centroDiSmistamento);
-        destinatarioMap.put(email, destinatario);
+        registraDestinatario(creaDestinatario(nome, cognnome, indirizzo, email, password));
     }
 
-    private void leggiCollo(String[] parte, Corriere corriere) {
+    private void leggiCollo(String[] parte, Corriere corriere, boolean caricaSubito) {
         String codice = parte[1];
         String mittente = parte[2];
         String email = parte[3]; //per indentificare il destinatario
         int peso = Integer.parseInt(parte[4]);
         String codiceSpedizione = parte[5];
-        Destinatario destinatario = destinatarioMap.get(email);
+        Destinatario destinatario = cercaDestinatario(email);
         if (destinatario == null) {
             return;
             //destinatario non trovato
         }
-        Collo collo = new Collo(codice, mittente, destinatario, peso, codiceSpedizione);
-        colloMap.put(codice, collo);
+        Collo collo = creaCollo(codice, mittente, destinatario, peso, codiceSpedizione);
+        if (caricaSubito) {
+            corriere.accept(collo);
+        } else {
+            registraCollo(collo, corriere);
+        }
+    }
+
+    String interna(String simbolo) {
+        return simboli.interna(simbolo);
+    }
+
+    Corriere registraCorriere(String nomeCorriere) {
+        return registraCorriere(new Corriere(simboli.interna(nomeCorriere)));
+    }
+
+    synchronized Corriere registraCorriere(Corriere corriere) {
+        registra(corrieri, corrieriPerNome, simboli.id(corriere.getNome()), corriere);
+        centroDiSmistamento.aggiungiCorriere(corriere);
+        ultimoCorriere = corriere;
+        if (aggiornamentiAttivi) {
+            corriere.scheduleUpdate(); //i colli che riceverà verranno pianificati quando saranno caricati
+        }
+        return corriere;
+    }
+
+    /**
+     * Avvia l'aggiornamento periodico dello stato dei colli di tutti i corrieri tramite
+     * {@link Corriere#scheduleUpdate()}. Anche i corrieri registrati in seguito, ad esempio da righe aggiunte al
+     * file, vengono pianificati al momento della registrazione. Le chiamate successive alla prima non hanno effetto.
+     */
+    public synchronized void avviaAggiornamenti() {
+        if (aggiornamentiAttivi) {
+            return;
+        }
+        aggiornamentiAttivi = true;
+        for (Corriere corriere : corrieri) {
+            corriere.scheduleUpdate();
+        }
+    }
+
+    void registraVeicolo(Veicolo veicolo, Corriere corriere) {
+        corriere.aggiungiVeicolo(veicolo);
+    }
+
+    Destinatario creaDestinatario(String nome, String cognome, String indirizzo, String email, String password) {
+        //la password in chiaro non viene conservata: l'hash costoso viene calcolato una sola volta all'importazione
+        return creaDestinatario(nome, cognome, indirizzo, email, Credenziale.crea(password.toCharArray()));
+    }
+
+    Destinatario creaDestinatario(String nome, String cognome, String indirizzo, String email, Credenziale credenziale) {
+        return new Destinatario(nome, cognome, indirizzo, simboli.interna(email), credenziale, centroDiSmistamento);
+    }
+
+    synchronized void registraDestinatario(Destinatario destinatario) {
+        registra(destinatari, destinatariPerEmail, simboli.id(destinatario.getEmail()), destinatario);
+    }
+
+    //un oggetto con una chiave già registrata sostituisce il precedente e ne eredita l'identificativo;
+    //l'oggetto viene aggiunto prima di pubblicarne l'identificativo, così che un lettore senza lock che trova
+    //l'identificativo nell'indice trovi anche l'oggetto nella lista
+    private static <T> void registra(List<T> oggetti, MappaInteri indice, int chiave, T oggetto) {
+        int id = indice.get(chiave);
+        if (id == MappaInteri.ASSENTE) {
+            int nuovoId = oggetti.size();
+            oggetti.add(oggetto);
+            indice.put(chiave, nuovoId);
+        } else {
+            oggetti.set(id, oggetto);
+        }
+    }
+
+    Destinatario cercaDestinatario(String email) {
+        int id = destinatariPerEmail.get(simboli.cerca(email));
+        return id == MappaInteri.ASSENTE ? null : destinatari.get(id);
+    }
+
+    Collo creaCollo(String codice, String mittente, Destinatario destinatario, int peso, String codiceSpedizione) {
+        return new Collo(codice, simboli.interna(mittente), destinatario, peso, codiceSpedizione);
+    }
+
+    void registraCollo(Collo collo, Corriere corriere) {
         corriere.aggiungiCollo(collo);
     }
+
+    void ripristinaCollo(Collo collo, Corriere corriere, List<Veicolo> veicoliAssegnati) {
+        corriere.ripristinaCollo(collo, veicoliAssegnati);
+    }
     /**
      * Restituisce una mappa dei corrieri presenti nel sistema.
      * La chiave è il nome del corriere e il valore è l'oggetto {@link Corriere} associato.
+     * La mappa non è modificabile e riflette le registrazioni successive.
      *
      * @return Una mappa dei corrieri.
      */
     public Map<String, Corriere> getCorriereMap() {
-        return corriereMap;
+        return new VistaPerChiave<>(corrieri, corrieriPerNome, Corriere::getNome);
+    }
+    /**
+     * Restituisce tutti i colli dei destinatari presenti nel sistema.
+     * La collezione riflette i colli registrati in seguito.
+     * @return I colli di tutti i destinatari.
+     */
+    public Iterable<Collo> getColli() {
+        return () -> destinatari.stream().flatMap(d -> d.getColliAssociati().stream()).iterator();
     }
     /**
      * Restituisce una mappa dei destinatari presenti nel sistema.
      * La chiave è l'email del destinatario e il valore è l'oggetto {@link Destinatario} associato.
+     * La mappa non è modificabile e riflette le registrazioni successive.
      * @return Una mappa dei destinatari.
      */
     public Map<String, Destinatario> getDestinatarioMap() {
-        return destinatarioMap;
+        return new VistaPerChiave<>(destinatari, destinatariPerEmail, Destinatario::getEmail);
+    }
+
+    //mappa in sola lettura che risolve la chiave tramite la tabella dei simboli e l'indice per identificativo
+    private class VistaPerChiave<V> extends AbstractMap<String, V> {
+        private final List<V> oggetti;
+        private final MappaInteri indice;
+        private final Function<V, String> chiave;
+
+        private VistaPerChiave(List<V> oggetti, MappaInteri indice, Function<V, String> chiave) {
+            this.oggetti = oggetti;
+            this.indice = indice;
+            this.chiave = chiave;
+        }
+
+        @Override
+        public V get(Object k) {
+            if (!(k instanceof String s)) {
+                return null;
+            }
+            int id = indice.get(simboli.cerca(s));
+            return id == MappaInteri.ASSENTE ? null : oggetti.get(id);
+        }
+
+        @Override
+        public boolean containsKey(Object k) {
+            return get(k) != null;
+        }
+
+        @Override
+        public int size() {
+            return oggetti.size();
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    Iterator<V> it = oggetti.iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, V> next() {
+                            V v = it.next();
+                            return new SimpleImmutableEntry<>(chiave.apply(v), v);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return oggetti.size();
+                }
+            };
+        }
+
+        @Override
+        public Collection<V> values() {
+            return Collections.unmodifiableList(oggetti);
+        }
+    }
+
+    //flusso che termina dopo il numero di byte indicato, anche se il file nel frattempo è cresciuto
+    private static class FlussoLimitato extends FilterInputStream {
+        private long restanti;
+
+        FlussoLimitato(InputStream in, long limite) {
+            super(in);
+            this.restanti = limite;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (restanti <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                restanti--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (restanti <= 0) {
+                return -1;
+            }
+            int letti = super.read(b, off, (int) Math.min(len, restanti));
+            if (letti > 0) {
+                restanti -= letti;
+            }
+            return letti;
+        }
     }
 
 }
@@ -0,0 +1,33 @@
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * Strategia di caricamento basata sull'algoritmo First Fit Decreasing.
+ *
+ * <p>
+ * I colli, già ordinati per peso decrescente, vengono inseriti nel primo veicolo della lista che ha
+ * capacità residua sufficiente. La ricerca del primo veicolo avviene su un {@link AlberoCapacitaResidue},
+ * per cui ogni inserimento costa O(log n) anziché scorrere tutta la lista dei veicoli.
+ * </p>
+ *
+ * @see StrategiaCaricamento
+ * @see AlberoCapacitaResidue
+ */
+public class FirstFitDecrescente implements StrategiaCaricamento {
+
+    @Override
+    public List<Collo> carica(List<Collo> colli, List<Veicolo> veicoli) {
+        List<Collo> colliNonGestiti = new ArrayList<>();
+        AlberoCapacitaResidue albero = new AlberoCapacitaResidue(veicoli);
+        for (Collo collo : colli) {
+            int indice = albero.primoCapiente(collo.getPeso());
+            if (indice < 0) {
+                colliNonGestiti.add(collo);
+                continue;
+            }
+            Veicolo veicolo = veicoli.get(indice);
+            veicolo.carica(collo);
+            albero.aggiorna(indice, veicolo.getCapacitaResidua());
+        }
+        return colliNonGestiti;
+    }
+}
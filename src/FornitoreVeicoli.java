@@ -0,0 +1,93 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+/**
+ * La classe {@code FornitoreVeicoli} apre nuovi veicoli per i colli che non entrano nella flotta di un {@link Corriere}.
+ *
+ * <p>
+ * Ogni {@link TipoVeicolo} ha una capienza standard e il fornitore sceglie sempre il tipo più piccolo che basta:
+ * per un gruppo di colli da sistemare viene aperto il veicolo più piccolo in grado di contenere tutto il peso
+ * ancora da caricare, oppure il più grande disponibile se il peso lo supera, e i colli successivi vengono
+ * inseriti con Best Fit nei veicoli già aperti prima di aprirne un altro. Un collo più pesante del veicolo
+ * più grande riceve un veicolo di quel tipo con capienza pari al suo peso.
+ * </p>
+ *
+ * <p>
+ * Con i colli ordinati per peso decrescente il costo è O(n log n), perché i veicoli aperti sono tenuti in un
+ * {@link IndiceCapacitaResidue}.
+ * </p>
+ *
+ * @see Corriere#CaricaColli()
+ * @see Corriere#accept(Collo)
+ */
+public class FornitoreVeicoli {
+    private final TipoVeicolo[] catalogo; //tipi ordinati per capienza standard crescente
+
+    /**
+     * Crea un fornitore che usa tutti i tipi di veicolo con la loro capienza standard.
+     */
+    public FornitoreVeicoli() {
+        this.catalogo = TipoVeicolo.values().clone();
+        Arrays.sort(catalogo, Comparator.comparingInt(TipoVeicolo::getCapienzaStandard));
+    }
+
+    /**
+     * Apre i veicoli necessari a trasportare i colli indicati e li carica.
+     * @param colli i colli da sistemare, ordinati per peso decrescente.
+     * @param corriere il corriere a cui appartengono i nuovi veicoli.
+     * @return i veicoli aperti, già caricati.
+     */
+    public List<Veicolo> apriVeicoli(List<Collo> colli, Corriere corriere) {
+        List<Veicolo> aperti = new ArrayList<>();
+        IndiceCapacitaResidue indice = new IndiceCapacitaResidue();
+        long pesoDaCaricare = 0;
+        for (Collo c : colli) {
+            pesoDaCaricare += c.getPeso();
+        }
+        for (Collo c : colli) {
+            if (!indice.inserisci(c)) {
+                Veicolo veicolo = nuovoVeicolo(scegliTipo(pesoDaCaricare), c.getPeso(), corriere);
+                veicolo.carica(c);
+                indice.aggiungi(veicolo);
+                aperti.add(veicolo);
+            }
+            pesoDaCaricare -= c.getPeso();
+        }
+        return aperti;
+    }
+
+    /**
+     * Apre un veicolo per un singolo collo arrivato dopo il caricamento e ve lo inserisce. Poiché altri colli
+     * possono arrivare in seguito, viene aperto il tipo con la capienza standard maggiore.
+     * @param collo il collo da sistemare.
+     * @param corriere il corriere a cui appartiene il nuovo veicolo.
+     * @return il veicolo aperto, già caricato.
+     */
+    public Veicolo apriVeicolo(Collo collo, Corriere corriere) {
+        Veicolo veicolo = nuovoVeicolo(catalogo[catalogo.length - 1], collo.getPeso(), corriere);
+        veicolo.carica(collo);
+        return veicolo;
+    }
+
+    /**
+     * Ritorna il tipo di veicolo più piccolo la cui capienza standard basta per il peso indicato, oppure il più
+     * grande del catalogo se nessuno basta.
+     * @param peso il peso da trasportare.
+     * @return il tipo di veicolo da aprire.
+     */
+    public TipoVeicolo scegliTipo(long peso) {
+        for (TipoVeicolo tipo : catalogo) {
+            if (tipo.getCapienzaStandard() >= peso) {
+                return tipo;
+            }
+        }
+        return catalogo[catalogo.length - 1];
+    }
+
+    private Veicolo nuovoVeicolo(TipoVeicolo tipo, int pesoCollo, Corriere corriere) {
+        String targa = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        return new Veicolo(targa, tipo, Math.max(tipo.getCapienzaStandard(), pesoCollo), corriere);
+    }
+}
@@ -14,13 +14,29 @@ public interface GestoreColli {
      */
     void setNext(GestoreColli gestoreColli);
 
+    /**
+     * Restituisce il prossimo gestore nella catena di responsabilità.
+     *
+     * @return il gestore successivo, oppure null se il gestore corrente è l'ultimo della catena.
+     */
+    GestoreColli getSuccessivo();
+
+    /**
+     * Inserisce il collo nel gestore corrente se ha spazio sufficiente, senza interpellare i gestori successivi.
+     *
+     * @param collo Il collo da inserire.
+     * @return true se il collo è stato inserito nel gestore corrente, false altrimenti.
+     */
+    boolean inserisciSeCapiente(Collo collo);
+
 
     /**
      * Determina se un dato collo può essere inserito nel gestore corrente.
 
      * Se il gestore corrente può inserire il collo, ritorna {@code true}.
      * Altrimenti, se esiste un gestore successivo nella catena, la richiesta viene passata
-     * al gestore successivo.
+     * al gestore successivo. La catena viene percorsa in modo iterativo, per cui la sua lunghezza
+     * non è limitata dalla dimensione dello stack.
      *
      * @param collo Il collo da inserire.
      * @return true se il collo può essere inserito nel gestore corrente o in un gestore successivo;
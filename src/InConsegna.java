@@ -7,13 +7,22 @@
  * @see StatoCollo
  */
 public class InConsegna implements StatoCollo {
+    /**
+     * L'unica istanza dello stato "InConsegna", condivisa da tutti i colli.
+     */
+    public static final InConsegna ISTANZA = new InConsegna();
+    private static final ModelloMessaggio MESSAGGIO = new ModelloMessaggio("Il Corriere prevede di consegnare il collo : ", " nel corso della giornata");
+
+    private InConsegna() {
+    }
+
     /**
      * Avanza il {@link Collo} fornito al prossimo stato, che in questo caso è "Consegnato"
      * @param collo collo il cui stato deve essere avanzato.
      */
     @Override
     public void prossimoStato(Collo collo) {
-        collo.setStato(new Consegnato());
+        collo.setStato(Consegnato.ISTANZA);
     }
 
     /**
@@ -23,6 +32,24 @@ public class InConsegna implements StatoCollo {
      */
     @Override
     public String stampaStato(Collo collo) {
-        return "Il Corriere prevede di consegnare il collo : " + collo.getCodice() + " nel corso della giornata";
+        return MESSAGGIO.componi(collo.getCodice());
+    }
+
+    /**
+     * Restituisce la fase "InConsegna" del ciclo di spedizione.
+     * @return {@link FaseCollo#IN_CONSEGNA}
+     */
+    @Override
+    public FaseCollo getFase() {
+        return FaseCollo.IN_CONSEGNA;
+    }
+
+    /**
+     * Restituisce il modello del messaggio dello stato "InConsegna", con le parti costanti già separate.
+     * @return il {@link ModelloMessaggio} dello stato.
+     */
+    @Override
+    public ModelloMessaggio getModelloMessaggio() {
+        return MESSAGGIO;
     }
 }
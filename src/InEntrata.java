@@ -7,13 +7,22 @@
  * @see StatoCollo
  */
 public class InEntrata implements StatoCollo {
+    /**
+     * L'unica istanza dello stato "InEntrata", condivisa da tutti i colli.
+     */
+    public static final InEntrata ISTANZA = new InEntrata();
+    private static final ModelloMessaggio MESSAGGIO = new ModelloMessaggio("Il collo ", " è arrivato all'HUB e dovrebbe andare presto in consegna");
+
+    private InEntrata() {
+    }
+
     /**
      * Avanza il {@link Collo} fornito al prossimo stato, che in questo caso è "InConsegna"
      * @param collo collo il cui stato deve essere avanzato.
      */
     @Override
     public void prossimoStato(Collo collo) {
-        collo.setStato(new InConsegna());
+        collo.setStato(InConsegna.ISTANZA);
 
     }
 
@@ -24,6 +33,24 @@ public class InEntrata implements StatoCollo {
      */
     @Override
     public String stampaStato(Collo collo) {
-        return "Il collo " + collo.getCodice() + " è arrivato all'HUB e dovrebbe andare presto in consegna";
+        return MESSAGGIO.componi(collo.getCodice());
+    }
+
+    /**
+     * Restituisce la fase "InEntrata" del ciclo di spedizione.
+     * @return {@link FaseCollo#IN_ENTRATA}
+     */
+    @Override
+    public FaseCollo getFase() {
+        return FaseCollo.IN_ENTRATA;
+    }
+
+    /**
+     * Restituisce il modello del messaggio dello stato "InEntrata", con le parti costanti già separate.
+     * @return il {@link ModelloMessaggio} dello stato.
+     */
+    @Override
+    public ModelloMessaggio getModelloMessaggio() {
+        return MESSAGGIO;
     }
 }
@@ -7,13 +7,22 @@
  * @see StatoCollo
  */
 public class InTransito implements StatoCollo {
+    /**
+     * L'unica istanza dello stato "InTransito", condivisa da tutti i colli.
+     */
+    public static final InTransito ISTANZA = new InTransito();
+    private static final ModelloMessaggio MESSAGGIO = new ModelloMessaggio("Il collo ", " è in Viaggio verso l'HUB più vicino al punto di consegna");
+
+    private InTransito() {
+    }
+
     /**
      * Avanza il {@link Collo} fornito al prossimo stato, che in questo caso è "InEntrata".
      * @param collo collo il cui stato deve essere avanzato.
      */
     @Override
     public void prossimoStato(Collo collo) {
-        collo.setStato(new InEntrata());
+        collo.setStato(InEntrata.ISTANZA);
     }
 
     /**
@@ -23,7 +32,24 @@ public class InTransito implements StatoCollo {
      */
     @Override
     public String stampaStato(Collo collo) {
-        return "Il collo " + collo.getCodice() + " è in Viaggio verso l'HUB più vicino al punto di consegna";
+        return MESSAGGIO.componi(collo.getCodice());
+    }
+
+    /**
+     * Restituisce la fase "InTransito" del ciclo di spedizione.
+     * @return {@link FaseCollo#IN_TRANSITO}
+     */
+    @Override
+    public FaseCollo getFase() {
+        return FaseCollo.IN_TRANSITO;
     }
 
+    /**
+     * Restituisce il modello del messaggio dello stato "InTransito", con le parti costanti già separate.
+     * @return il {@link ModelloMessaggio} dello stato.
+     */
+    @Override
+    public ModelloMessaggio getModelloMessaggio() {
+        return MESSAGGIO;
+    }
 }
@@ -0,0 +1,45 @@
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+/**
+ * Indice ordinato dei veicoli per capacità residua.
+ *
+ * <p>
+ * I veicoli con la stessa capacità residua sono raggruppati in una coda, mentre le capacità sono tenute in un
+ * albero bilanciato. Trovare il veicolo con la minima capacità residua sufficiente per un collo e aggiornarne
+ * la posizione dopo l'inserimento costa quindi O(log n).
+ * </p>
+ *
+ * @see BestFitDecrescente
+ */
+public class IndiceCapacitaResidue {
+    private final TreeMap<Integer, ArrayDeque<Veicolo>> veicoliPerResiduo = new TreeMap<>();
+
+    /**
+     * Aggiunge un veicolo all'indice in base alla sua capacità residua corrente.
+     * @param veicolo il veicolo da aggiungere.
+     */
+    public void aggiungi(Veicolo veicolo) {
+        veicoliPerResiduo.computeIfAbsent(veicolo.getCapacitaResidua(), k -> new ArrayDeque<>()).addLast(veicolo);
+    }
+
+    /**
+     * Inserisce il collo nel veicolo con la minima capacità residua sufficiente a contenerlo.
+     * @param collo il collo da inserire.
+     * @return true se il collo è stato inserito, false se nessun veicolo può contenerlo.
+     */
+    public boolean inserisci(Collo collo) {
+        Map.Entry<Integer, ArrayDeque<Veicolo>> entry = veicoliPerResiduo.ceilingEntry(collo.getPeso());
+        if (entry == null) {
+            return false;
+        }
+        ArrayDeque<Veicolo> coda = entry.getValue();
+        Veicolo veicolo = coda.pollFirst();
+        if (coda.isEmpty()) {
+            veicoliPerResiduo.remove(entry.getKey());
+        }
+        veicolo.carica(collo);
+        aggiungi(veicolo);
+        return true;
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+/**
+ * La classe {@code Istogramma} registra la distribuzione di valori non negativi, tipicamente latenze in nanosecondi,
+ * con precisione relativa costante in stile HdrHistogram.
+ *
+ * <p>
+ * I valori minori di 64 hanno un intervallo ciascuno; quelli maggiori vengono raggruppati per potenza di due e
+ * ogni potenza è divisa in 32 intervalli, per cui l'errore relativo dei percentili è al più 1/32 (circa 3%) su
+ * tutto l'intervallo dei long, con 1888 contatori in tutto. La registrazione di un valore costa un calcolo di
+ * indice con {@link Long#numberOfLeadingZeros(long)} e un solo incremento atomico, senza lock né allocazioni,
+ * e può avvenire da qualunque thread. Come in HdrHistogram, anche somma e massimo vengono ricavati dagli
+ * intervalli, con la stessa precisione dei percentili: così la registrazione resta abbastanza piccola da non
+ * impedire al compilatore JIT di espandere in linea i metodi strumentati.
+ * </p>
+ *
+ * <p>
+ * Le letture non fermano le registrazioni: un percentile letto mentre altri thread registrano valori riflette
+ * uno stato intermedio, che può differire di poche unità dal conteggio esatto.
+ * </p>
+ *
+ * @see Metriche
+ */
+public class Istogramma {
+    private static final int BIT_SOTTOINTERVALLI = 5;
+    private static final int SOTTOINTERVALLI = 1 << BIT_SOTTOINTERVALLI; //intervalli per potenza di due
+    private static final int LINEARI = SOTTOINTERVALLI << 1; //valori registrati esattamente
+    private static final int NUMERO_INTERVALLI = LINEARI + (Long.SIZE - 1 - (BIT_SOTTOINTERVALLI + 1)) * SOTTOINTERVALLI;
+
+    private final String unita;
+    private final AtomicLongArray conteggi;
+
+    /**
+     * Crea un istogramma vuoto.
+     * @param unita l'unità di misura dei valori, ad esempio "ns".
+     */
+    public Istogramma(String unita) {
+        this.unita = unita;
+        this.conteggi = new AtomicLongArray(NUMERO_INTERVALLI);
+    }
+
+    /**
+     * Registra un valore; i valori negativi vengono registrati come 0.
+     * @param valore il valore da registrare.
+     */
+    public void registra(long valore) {
+        conteggi.getAndIncrement(indice(Math.max(0, valore)));
+    }
+
+    public String getUnita() {
+        return unita;
+    }
+
+    /**
+     * @return il numero di valori registrati.
+     */
+    public long getConteggio() {
+        long totale = 0;
+        for (int i = 0; i < NUMERO_INTERVALLI; i++) {
+            totale += conteggi.get(i);
+        }
+        return totale;
+    }
+
+    /**
+     * @return la somma dei valori registrati, calcolata con il valore centrale di ciascun intervallo.
+     */
+    public long getSomma() {
+        long totale = 0;
+        for (int i = 0; i < NUMERO_INTERVALLI; i++) {
+            long conteggio = conteggi.get(i);
+            if (conteggio != 0) {
+                long minimo = i == 0 ? 0 : massimoIntervallo(i - 1) + 1;
+                totale += conteggio * (minimo + (massimoIntervallo(i) - minimo) / 2);
+            }
+        }
+        return totale;
+    }
+
+    /**
+     * @return il valore più alto dell'intervallo del massimo registrato, oppure 0 se l'istogramma è vuoto.
+     */
+    public long getMassimo() {
+        for (int i = NUMERO_INTERVALLI - 1; i >= 0; i--) {
+            if (conteggi.get(i) != 0) {
+                return massimoIntervallo(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Calcola più percentili con una sola scansione dei contatori. Ogni percentile è il valore più alto
+     * dell'intervallo che lo contiene, per cui non è mai inferiore al valore esatto.
+     * @param quantili i quantili richiesti, compresi tra 0 e 1 e in ordine crescente.
+     * @return i valori corrispondenti ai quantili, tutti 0 se l'istogramma è vuoto.
+     */
+    public long[] percentili(double... quantili) {
+        long[] copia = new long[NUMERO_INTERVALLI];
+        long totale = 0;
+        for (int i = 0; i < NUMERO_INTERVALLI; i++) {
+            copia[i] = conteggi.get(i);
+            totale += copia[i];
+        }
+        long[] valori = new long[quantili.length];
+        if (totale == 0) {
+            return valori;
+        }
+        long cumulato = 0;
+        int i = -1;
+        for (int q = 0; q < quantili.length; q++) {
+            long soglia = Math.max(1, (long) Math.ceil(quantili[q] * totale));
+            while (cumulato < soglia && i < NUMERO_INTERVALLI - 1) {
+                cumulato += copia[++i];
+            }
+            valori[q] = massimoIntervallo(Math.max(i, 0));
+        }
+        return valori;
+    }
+
+    static int indice(long valore) {
+        if (valore < LINEARI) {
+            return (int) valore;
+        }
+        int esponente = Long.SIZE - 1 - Long.numberOfLeadingZeros(valore);
+        int scorrimento = esponente - BIT_SOTTOINTERVALLI;
+        return LINEARI + (esponente - BIT_SOTTOINTERVALLI - 1) * SOTTOINTERVALLI + (int) (valore >>> scorrimento) - SOTTOINTERVALLI;
+    }
+
+    //valore più alto che ricade nell'intervallo indicato
+    static long massimoIntervallo(int indice) {
+        if (indice < LINEARI) {
+            return indice;
+        }
+        int k = indice - LINEARI;
+        int scorrimento = k / SOTTOINTERVALLI + 1;
+        long superiore = k % SOTTOINTERVALLI + SOTTOINTERVALLI + 1L;
+        return (superiore << scorrimento) - 1; //per l'ultimo intervallo vale Long.MAX_VALUE
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+/**
+ * Lista a cui gli elementi possono solo essere aggiunti in coda o sostituiti, pensata per essere letta da molti thread
+ * mentre un altro thread la popola.
+ *
+ * <p>
+ * Le aggiunte e le sostituzioni sono sincronizzate sulla lista e costano O(1) ammortizzato, mentre le letture non richiedono
+ * alcun lock: la dimensione è pubblicata con una scrittura volatile dopo l'elemento, per cui chi la legge
+ * vede sempre tutti gli elementi fino a quella posizione; allo stesso modo una sostituzione è seguita dalla
+ * riscrittura volatile dell'array, che pubblica il nuovo elemento ai lettori successivi. A differenza di una
+ * {@link java.util.concurrent.CopyOnWriteArrayList} l'array non viene copiato a ogni aggiunta.
+ * Gli iteratori non lanciano mai {@link java.util.ConcurrentModificationException}.
+ * </p>
+ *
+ * @param <E> il tipo degli elementi della lista.
+ */
+public class ListaAppendOnly<E> extends AbstractList<E> implements RandomAccess {
+    private volatile Object[] elementi = new Object[4];
+    private volatile int dimensione;
+
+    /**
+     * Aggiunge un elemento in coda alla lista.
+     * @param elemento l'elemento da aggiungere.
+     * @return sempre true.
+     */
+    @Override
+    public synchronized boolean add(E elemento) {
+        Object[] array = elementi;
+        int n = dimensione;
+        if (n == array.length) {
+            array = Arrays.copyOf(array, n * 2);
+            elementi = array;
+        }
+        array[n] = elemento;
+        dimensione = n + 1; //pubblica l'elemento ai lettori
+        return true;
+    }
+
+    /**
+     * Sostituisce l'elemento in una posizione già occupata. I lettori concorrenti vedono l'elemento
+     * precedente oppure quello nuovo.
+     * @param indice la posizione dell'elemento da sostituire.
+     * @param elemento il nuovo elemento.
+     * @return l'elemento sostituito.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized E set(int indice, E elemento) {
+        if (indice < 0 || indice >= dimensione) {
+            throw new IndexOutOfBoundsException("Indice: " + indice + ", dimensione: " + dimensione);
+        }
+        Object[] array = elementi;
+        E precedente = (E) array[indice];
+        array[indice] = elemento;
+        elementi = array; //scrittura volatile: pubblica l'elemento sostituito ai lettori
+        return precedente;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int indice) {
+        int n = dimensione;
+        if (indice < 0 || indice >= n) {
+            throw new IndexOutOfBoundsException("Indice: " + indice + ", dimensione: " + n);
+        }
+        return (E) elementi[indice];
+    }
+
+    @Override
+    public int size() {
+        return dimensione;
+    }
+}
@@ -5,10 +5,14 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPasswordField;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.GridLayout;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 /**
  * La classe {@code LoginScreenGUI} rappresenta la schermata di login dell'applicazione.
  * Gli utenti possono inserire le loro credenziali (email e password) per accedere alle
@@ -16,6 +20,9 @@ import java.util.Map;
  * delle credenziali e un pulsante per effettuare l'accesso.
  * <p>Se le credenziali fornite sono valide, l'utente viene reindirizzato alla schermata di
  * tracking. In caso contrario, viene mostrato un messaggio di errore.
+ * <p>La verifica della password è affidata all'{@link ArchivioCredenziali} e avviene fuori dall'Event Dispatch Thread,
+ * così che la finestra resti reattiva mentre viene calcolato l'hash; il pulsante di login resta disabilitato
+ * fino alla risposta.
  * @see JFrame
  * @see FileManager
  * @see DataSingleton
@@ -24,6 +31,7 @@ import java.util.Map;
 public class LoginScreenGUI extends JFrame {
     private JTextField emailField;
     private JPasswordField passwordField;
+    private JButton loginButton;
 
     public LoginScreenGUI() {
         getContentPane().setBackground(new Color(218, 224, 224));
@@ -55,7 +63,7 @@ public class LoginScreenGUI extends JFrame {
         add(passwordField);
 
         //pulsante di login
-        JButton loginButton = new JButton("LOGIN");
+        loginButton = new JButton("LOGIN");
         loginButton.addActionListener(e -> onLogin());
         add(loginButton);
         loginButton.setBackground(new Color(218, 224, 224));
@@ -68,34 +76,47 @@ public class LoginScreenGUI extends JFrame {
     private void onLogin() {
         String email = emailField.getText();
         char[] password = passwordField.getPassword();
-        if (validaCredenziali(email, password)) {
-            dispose();
-            new TrackingScreenGUI(email);
-        } else {
-            JOptionPane.showMessageDialog(this, "Credenziali Non Valide. Riprova. ");
-        }
+        loginButton.setEnabled(false);
+        validaCredenziali(email, password).whenComplete((token, errore) -> SwingUtilities.invokeLater(() -> {
+            loginButton.setEnabled(true);
+            if (errore != null) {
+                Throwable causa = errore instanceof CompletionException ? errore.getCause() : errore;
+                if (causa instanceof RejectedExecutionException) {
+                    JOptionPane.showMessageDialog(this, "Troppi accessi in corso. Riprova tra poco. ");
+                } else {
+                    causa.printStackTrace();
+                    JOptionPane.showMessageDialog(this, "Errore durante la verifica delle credenziali. ");
+                }
+            } else if (token != null) {
+                dispose();
+                new TrackingScreenGUI(email);
+            } else {
+                JOptionPane.showMessageDialog(this, "Credenziali Non Valide. Riprova. ");
+            }
+        }));
     }
     /**
      * Valida le credenziali fornite confrontandole con quelle presenti nel sistema.
+     * La verifica viene eseguita in modo asincrono, dopo il caricamento dei dati, e l'array della password
+     * viene azzerato al termine.
      *
      * @param email L'indirizzo email fornito dall'utente.
      * @param password La password fornita dall'utente.
-     * @return true se le credenziali sono valide, altrimenti false.
+     * @return un future con il token della sessione se le credenziali sono valide, altrimenti null.
      */
-    private boolean validaCredenziali(String email, char[] password) {
-        //ottengo oggetto filemanager dal singleton
-        FileManager fileManager = DataSingleton.getInstance().getFileManager();
+    private CompletableFuture<String> validaCredenziali(String email, char[] password) {
+        //attendo il caricamento dei dati senza bloccare l'Event Dispatch Thread
+        return DataSingleton.avvia().thenCompose(dati -> verificaCredenziali(dati.getFileManager(), email, password));
+    }
+
+    private CompletableFuture<String> verificaCredenziali(FileManager fileManager, String email, char[] password) {
         //ottengo la mappa dei destinatari ad ogni email è associato un destinatario dato che l'email è univoca
         Map<String, Destinatario> destinatariMap = fileManager.getDestinatarioMap();
         //Ottengo il destinatario corrispondente all email
         Destinatario destinatario = destinatariMap.get(email);
-        //se è null significa che non esiste nessun destinatario con quell email quindi o non esiste o credenziali errate
-        if (destinatario == null) {
-            return false;
-        }
-        //ora mi basta confrontare solo la password inserita dato che ho gia fatto sopra il controllo sull username
-        String myPassword = destinatario.getPassword();
-        return myPassword.equals(new String(password));
+        //se è null non esiste nessun destinatario con quell email: l'archivio esegue comunque una verifica fittizia
+        //così che il tempo di risposta non riveli quali email sono registrate
+        return ArchivioCredenziali.getInstance().accedi(destinatario, password);
     }
 
 
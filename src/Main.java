@@ -1,6 +1,35 @@
 import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 public class Main {
+    private static final int PORTA_PREDEFINITA = 8080;
+
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(WelcomeScreenGUI::new);
+        //il caricamento dei dati procede mentre viene mostrata la schermata di benvenuto
+        DataSingleton.avvia();
+        if (args.length > 0 && args[0].equals("server")) {
+            avviaServer(args.length > 1 ? Integer.parseInt(args[1]) : PORTA_PREDEFINITA);
+        } else {
+            SwingUtilities.invokeLater(WelcomeScreenGUI::new);
+        }
+        if (Metriche.ABILITATE) {
+            Metriche.getInstance().esportaJmx();
+        }
     }
-}
\ No newline at end of file
+
+    //avvio senza interfaccia grafica: "java Main server [porta]"
+    private static void avviaServer(int porta) {
+        FileManager fileManager = DataSingleton.getInstance().getFileManager();
+        //senza schermata di benvenuto l'avanzamento degli stati parte appena i dati sono caricati
+        fileManager.avviaAggiornamenti();
+        ServerTracciamento server = new ServerTracciamento(fileManager, ArchivioCredenziali.getInstance());
+        try {
+            server.avvia(new InetSocketAddress(porta));
+            System.out.println("Server di tracciamento in ascolto sulla porta " + server.getPorta());
+            //alla terminazione del server vengono stampate le metriche raccolte
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.print(Metriche.getInstance()), "stampa-metriche"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * La classe {@code MappaInteri} associa chiavi intere non negative a valori interi non negativi tramite una
+ * tabella hash a indirizzamento aperto, senza creare un oggetto per ogni voce.
+ *
+ * <p>
+ * Chiavi e valori sono memorizzati a coppie in un unico array di interi, incrementati di uno così che lo zero
+ * indichi una posizione libera. Le scritture sono sincronizzate, mentre le letture non richiedono lock:
+ * la tabella viene sostituita solo dopo essere stata riempita, ogni voce scrive il valore prima della chiave e
+ * ogni scrittura si conclude riassegnando la tabella, così che chi legge una voce veda anche quanto il thread
+ * che l'ha scritta aveva fatto prima di inserirla.
+ * </p>
+ *
+ * @see FileManager
+ */
+public class MappaInteri {
+    /**
+     * Valore restituito da {@link #get(int)} per le chiavi assenti.
+     */
+    public static final int ASSENTE = -1;
+
+    private volatile int[] tabella = new int[32]; //coppie chiave + 1, valore + 1
+    private int dimensione;
+
+    /**
+     * Ritorna il valore associato alla chiave.
+     * @param chiave la chiave da cercare.
+     * @return il valore associato, oppure {@link #ASSENTE} se la chiave non è presente.
+     */
+    public int get(int chiave) {
+        if (chiave < 0) {
+            return ASSENTE;
+        }
+        int[] t = tabella;
+        int maschera = t.length / 2 - 1;
+        for (int i = disperdi(chiave) & maschera; ; i = (i + 1) & maschera) {
+            int presente = t[2 * i] - 1;
+            if (presente == chiave) {
+                return t[2 * i + 1] - 1; //ASSENTE se il valore non è ancora visibile
+            }
+            if (presente == ASSENTE) {
+                return ASSENTE;
+            }
+        }
+    }
+
+    /**
+     * Associa il valore alla chiave, sostituendo l'eventuale valore precedente.
+     * @param chiave la chiave, non negativa.
+     * @param valore il valore, non negativo.
+     * @return il valore precedente, oppure {@link #ASSENTE} se la chiave non era presente.
+     */
+    public synchronized int put(int chiave, int valore) {
+        if (chiave < 0 || valore < 0) {
+            throw new IllegalArgumentException("Chiave e valore devono essere non negativi");
+        }
+        if ((dimensione + 1) * 4 > tabella.length) { //al massimo metà delle coppie occupate
+            ridimensiona();
+        }
+        int[] t = tabella;
+        int i = posizione(t, chiave);
+        int precedente = t[2 * i + 1] - 1;
+        t[2 * i + 1] = valore + 1;
+        if (t[2 * i] == 0) {
+            t[2 * i] = chiave + 1;
+            dimensione++;
+        }
+        tabella = t; //scrittura volatile: pubblica la voce
+        return precedente;
+    }
+
+    /**
+     * Ritorna il numero di chiavi presenti.
+     * @return il numero di associazioni.
+     */
+    public synchronized int size() {
+        return dimensione;
+    }
+
+    private void ridimensiona() {
+        int[] vecchia = tabella;
+        int[] nuova = new int[vecchia.length * 2];
+        for (int i = 0; i < vecchia.length; i += 2) {
+            if (vecchia[i] != 0) {
+                int j = posizione(nuova, vecchia[i] - 1);
+                nuova[2 * j] = vecchia[i];
+                nuova[2 * j + 1] = vecchia[i + 1];
+            }
+        }
+        tabella = nuova;
+    }
+
+    //posizione della chiave, oppure della prima coppia libera in cui inserirla
+    private static int posizione(int[] t, int chiave) {
+        int maschera = t.length / 2 - 1;
+        int i = disperdi(chiave) & maschera;
+        while (t[2 * i] != 0 && t[2 * i] != chiave + 1) {
+            i = (i + 1) & maschera;
+        }
+        return i;
+    }
+
+    private static int disperdi(int chiave) {
+        int h = chiave * 0x9E3779B9; //moltiplicazione di Fibonacci: gli identificativi sono consecutivi
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,3 +1,5 @@
+import java.util.Collection;
+import java.util.Map;
 /**
  * Fornisce una definizione per il pattern Mediator, permettendo la tracciabilità dei colli.
  * Questa interfaccia rappresenta il componente Mediator del pattern Mediator. Il suo scopo principale è
@@ -15,4 +17,13 @@
      * @return Una stringa contenente le informazioni di tracciamento relative al collo specificato.
      */
     String tracciaCollo(Destinatario destinatario, String codice); // Metodo usato dal Destinatario per tracciare un Collo
+
+    /**
+     * Permette al destinatario di tracciare più colli con una sola chiamata.
+     * @param destinatario L'oggetto {@link Destinatario} che richiede la tracciatura dei pacchi.
+     * @param codici I codici di spedizione dei {@link Collo} da tracciare; i duplicati vengono tracciati una sola volta.
+     * @return Una mappa che associa a ogni codice, nell'ordine della collezione, le informazioni di tracciamento
+     *         che {@link #tracciaCollo(Destinatario, String)} restituirebbe per quel codice.
+     */
+    Map<String, String> tracciaColli(Destinatario destinatario, Collection<String> codici);
 }
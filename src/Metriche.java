@@ -0,0 +1,269 @@
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+/**
+ * La classe {@code Metriche} è il registro delle metriche raccolte sui percorsi critici dell'applicazione.
+ *
+ * <p>
+ * Le metriche sono di tre tipi: contatori basati su {@link LongAdder}, che non si contendono una singola variabile
+ * tra thread diversi; {@link Istogramma} di latenze e dimensioni; indicatori calcolati al momento della lettura,
+ * ad esempio le righe caricate al secondo. Ogni metrica ha un nome con componenti separati da punti e viene
+ * creata al primo utilizzo; le classi strumentate ne conservano il riferimento in un campo statico, per cui la
+ * registrazione di un valore non passa dal registro.
+ * </p>
+ *
+ * <p>
+ * Sui percorsi in cui una coppia di {@link System#nanoTime()} costerebbe quanto l'operazione misurata, come il
+ * tracciamento di un collo, la latenza viene misurata solo per una chiamata su {@code logistica.metriche.campionamento}
+ * (default 64, arrotondato a una potenza di due) scelta da {@link #campiona()}; i contatori sono invece sempre
+ * esatti.
+ * Con la proprietà di sistema {@code logistica.metriche} impostata a false la raccolta viene disattivata e il
+ * compilatore JIT elimina i controlli dai percorsi strumentati.
+ * </p>
+ *
+ * <p>
+ * Le metriche si leggono come testo tramite {@link #scrivi(Appendable)} oppure via JMX, dopo {@link #esportaJmx()},
+ * come attributi del bean {@code logistica:type=Metriche}: un attributo per contatore e indicatore e, per ogni
+ * istogramma, gli attributi {@code conteggio}, {@code media}, {@code p50}, {@code p90}, {@code p99}, {@code p999} e
+ * {@code max} preceduti dal nome dell'istogramma.
+ * </p>
+ *
+ * @see Istogramma
+ */
+public class Metriche {
+    /**
+     * Vale false se la raccolta delle metriche è stata disattivata con {@code -Dlogistica.metriche=false}.
+     */
+    public static final boolean ABILITATE = Boolean.parseBoolean(System.getProperty("logistica.metriche", "true"));
+    /**
+     * Numero di chiamate rappresentate da una chiamata scelta da {@link #campiona()}.
+     */
+    public static final int PESO_CAMPIONE =
+            Integer.highestOneBit(Math.max(1, Integer.getInteger("logistica.metriche.campionamento", 64)));
+    private static final int MASCHERA_CAMPIONAMENTO = PESO_CAMPIONE - 1;
+    private static final String NOME_JMX = "logistica:type=Metriche";
+    private static final double[] QUANTILI = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] ATTRIBUTI_ISTOGRAMMA = {"conteggio", "media", "p50", "p90", "p99", "p999", "max"};
+
+    private final Map<String, LongAdder> contatori;
+    private final Map<String, Istogramma> istogrammi;
+    private final Map<String, LongSupplier> indicatori;
+
+    private Metriche() {
+        this.contatori = new ConcurrentSkipListMap<>();
+        this.istogrammi = new ConcurrentSkipListMap<>();
+        this.indicatori = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Restituisce il registro condiviso, creandolo al primo utilizzo.
+     * @return l'unica istanza di {@link Metriche}.
+     */
+    public static Metriche getInstance() {
+        return Condiviso.ISTANZA;
+    }
+
+    /**
+     * Indica se la chiamata corrente deve essere misurata, per i percorsi la cui latenza viene campionata.
+     * @return true per circa una chiamata su {@code logistica.metriche.campionamento}, sempre false se le metriche
+     *         sono disattivate.
+     */
+    public static boolean campiona() {
+        return ABILITATE && (ThreadLocalRandom.current().nextInt() & MASCHERA_CAMPIONAMENTO) == 0;
+    }
+
+    /**
+     * Ritorna il contatore con il nome indicato, creandolo se non esiste.
+     * @param nome il nome del contatore.
+     * @return il contatore.
+     */
+    public LongAdder contatore(String nome) {
+        return contatori.computeIfAbsent(nome, n -> new LongAdder());
+    }
+
+    /**
+     * Ritorna l'istogramma con il nome indicato, creandolo se non esiste.
+     * @param nome il nome dell'istogramma.
+     * @param unita l'unità di misura dei valori, usata solo se l'istogramma viene creato.
+     * @return l'istogramma.
+     */
+    public Istogramma istogramma(String nome, String unita) {
+        return istogrammi.computeIfAbsent(nome, n -> new Istogramma(unita));
+    }
+
+    /**
+     * Registra un indicatore, il cui valore viene calcolato a ogni lettura. Un indicatore con lo stesso nome
+     * viene sostituito.
+     * @param nome il nome dell'indicatore.
+     * @param valore la funzione che calcola il valore dell'indicatore.
+     */
+    public void indicatore(String nome, LongSupplier valore) {
+        indicatori.put(nome, valore);
+    }
+
+    /**
+     * Scrive tutte le metriche come testo, una per riga e in ordine di nome: prima i contatori, poi gli
+     * indicatori e infine gli istogrammi con conteggio, media, percentili e massimo.
+     * @param destinazione la destinazione del testo.
+     * @throws IOException se la scrittura nella destinazione fallisce.
+     */
+    public void scrivi(Appendable destinazione) throws IOException {
+        for (Map.Entry<String, LongAdder> contatore : contatori.entrySet()) {
+            destinazione.append(String.format("%-44s %14d%n", contatore.getKey(), contatore.getValue().sum()));
+        }
+        for (Map.Entry<String, LongSupplier> indicatore : indicatori.entrySet()) {
+            destinazione.append(String.format("%-44s %14d%n", indicatore.getKey(), indicatore.getValue().getAsLong()));
+        }
+        for (Map.Entry<String, Istogramma> voce : istogrammi.entrySet()) {
+            Istogramma istogramma = voce.getValue();
+            long conteggio = istogramma.getConteggio();
+            long[] percentili = istogramma.percentili(QUANTILI);
+            destinazione.append(String.format("%-44s %14d  media %d  p50 %d  p90 %d  p99 %d  p99.9 %d  max %d %s%n",
+                    voce.getKey(), conteggio, conteggio == 0 ? 0 : istogramma.getSomma() / conteggio,
+                    percentili[0], percentili[1], percentili[2], percentili[3], istogramma.getMassimo(), istogramma.getUnita()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder testo = new StringBuilder();
+        try {
+            scrivi(testo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //non avviene con uno StringBuilder
+        }
+        return testo.toString();
+    }
+
+    /**
+     * Registra le metriche nel server JMX della piattaforma come bean {@code logistica:type=Metriche}, se non
+     * sono già registrate, così che possano essere lette ad esempio con JConsole.
+     */
+    public void esportaJmx() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nome = new ObjectName(NOME_JMX);
+            if (!server.isRegistered(nome)) {
+                server.registerMBean(new BeanMetriche(), nome);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    //valore di un attributo JMX, oppure null se l'attributo non esiste
+    private Long leggiAttributo(String attributo) {
+        LongAdder contatore = contatori.get(attributo);
+        if (contatore != null) {
+            return contatore.sum();
+        }
+        LongSupplier indicatore = indicatori.get(attributo);
+        if (indicatore != null) {
+            return indicatore.getAsLong();
+        }
+        int punto = attributo.lastIndexOf('.');
+        Istogramma istogramma = punto < 0 ? null : istogrammi.get(attributo.substring(0, punto));
+        if (istogramma == null) {
+            return null;
+        }
+        switch (attributo.substring(punto + 1)) {
+            case "conteggio":
+                return istogramma.getConteggio();
+            case "media":
+                long conteggio = istogramma.getConteggio();
+                return conteggio == 0 ? 0 : istogramma.getSomma() / conteggio;
+            case "p50":
+                return istogramma.percentili(0.5)[0];
+            case "p90":
+                return istogramma.percentili(0.9)[0];
+            case "p99":
+                return istogramma.percentili(0.99)[0];
+            case "p999":
+                return istogramma.percentili(0.999)[0];
+            case "max":
+                return istogramma.getMassimo();
+            default:
+                return null;
+        }
+    }
+
+    //bean JMX i cui attributi, tutti di sola lettura, sono le metriche registrate al momento della richiesta
+    private class BeanMetriche implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attributo) throws AttributeNotFoundException {
+            Long valore = leggiAttributo(attributo);
+            if (valore == null) {
+                throw new AttributeNotFoundException(attributo);
+            }
+            return valore;
+        }
+
+        @Override
+        public void setAttribute(Attribute attributo) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Le metriche sono di sola lettura: " + attributo.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributi) {
+            AttributeList valori = new AttributeList();
+            for (String attributo : attributi) {
+                Long valore = leggiAttributo(attributo);
+                if (valore != null) {
+                    valori.add(new Attribute(attributo, valore));
+                }
+            }
+            return valori;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributi) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String operazione, Object[] parametri, String[] firma) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(operazione), "Il bean delle metriche non ha operazioni");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributi = new ArrayList<>();
+            for (String nome : contatori.keySet()) {
+                attributi.add(new MBeanAttributeInfo(nome, "long", "Contatore", true, false, false));
+            }
+            for (String nome : indicatori.keySet()) {
+                attributi.add(new MBeanAttributeInfo(nome, "long", "Indicatore", true, false, false));
+            }
+            for (Map.Entry<String, Istogramma> voce : istogrammi.entrySet()) {
+                for (String suffisso : ATTRIBUTI_ISTOGRAMMA) {
+                    attributi.add(new MBeanAttributeInfo(voce.getKey() + "." + suffisso, "long",
+                            "Istogramma (" + voce.getValue().getUnita() + ")", true, false, false));
+                }
+            }
+            return new MBeanInfo(Metriche.class.getName(), "Metriche dei percorsi critici della logistica",
+                    attributi.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+
+    //inizializzazione pigra e thread-safe dell'istanza condivisa
+    private static class Condiviso {
+        private static final Metriche ISTANZA = new Metriche();
+    }
+}
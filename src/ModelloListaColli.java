@@ -0,0 +1,90 @@
+import javax.swing.AbstractListModel;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+/**
+ * La classe {@code ModelloListaColli} è un modello di lista che mostra i colli di un {@link Destinatario} senza copiarli.
+ *
+ * <p>
+ * Il modello legge i colli direttamente dalla lista in sola aggiunta del destinatario, per cui la sua creazione
+ * richiede tempo costante qualunque sia il numero di colli; insieme a un'altezza fissa delle righe della
+ * {@link javax.swing.JList}, che evita di misurare ogni riga, la finestra si apre senza scorrere tutti i colli.
+ * I colli sono divisi in pagine: quando viene mostrata una riga di una pagina, le righe dei colli della
+ * pagina successiva vengono preparate in un thread in background con {@link Collo#getRiga()}, così che lo
+ * scorrimento non le componga sull'Event Dispatch Thread.
+ * </p>
+ *
+ * <p>
+ * Il modello va usato solo dall'Event Dispatch Thread. I colli aggiunti al destinatario diventano visibili con
+ * {@link #aggiorna()}.
+ * </p>
+ *
+ * @see TrackingScreenGUI
+ */
+public class ModelloListaColli extends AbstractListModel<Collo> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Destinatario destinatario;
+    private final transient List<Collo> colli;
+    private final int dimensionePagina;
+    private final BitSet pagineRichieste; //pagine di cui è già stato chiesto il precaricamento
+    private int dimensione; //numero di colli mostrati
+
+    /**
+     * Crea un modello sui colli del destinatario.
+     * @param destinatario il destinatario di cui mostrare i colli.
+     * @param dimensionePagina il numero di colli di una pagina.
+     */
+    public ModelloListaColli(Destinatario destinatario, int dimensionePagina) {
+        this.destinatario = destinatario;
+        this.colli = destinatario.getColliAssociati();
+        this.dimensionePagina = dimensionePagina;
+        this.pagineRichieste = new BitSet();
+        this.dimensione = colli.size();
+    }
+
+    @Override
+    public int getSize() {
+        return dimensione;
+    }
+
+    @Override
+    public Collo getElementAt(int indice) {
+        int successiva = indice / dimensionePagina + 1;
+        if (!pagineRichieste.get(successiva) && (long) successiva * dimensionePagina < dimensione) {
+            pagineRichieste.set(successiva);
+            Precaricamento.ESECUTORE.execute(() -> {
+                for (Collo c : destinatario.getPagina(successiva, dimensionePagina)) {
+                    c.getRiga(); //la riga resta memorizzata nel collo fino al prossimo cambio di stato
+                }
+            });
+        }
+        return colli.get(indice);
+    }
+
+    /**
+     * Rende visibili i colli aggiunti al destinatario e ridisegna le righe, così che mostrino lo stato corrente
+     * dei colli. Con un'altezza fissa delle righe il costo non dipende dal numero di colli.
+     */
+    public void aggiorna() {
+        int precedente = dimensione;
+        int nuova = colli.size();
+        if (nuova > precedente) {
+            dimensione = nuova;
+            fireIntervalAdded(this, precedente, nuova - 1);
+        }
+        if (precedente > 0) {
+            fireContentsChanged(this, 0, precedente - 1);
+        }
+    }
+
+    //thread condiviso che prepara le pagine successive, creato al primo utilizzo
+    private static class Precaricamento {
+        private static final ExecutorService ESECUTORE = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "precaricamento-colli");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -0,0 +1,46 @@
+import java.io.IOException;
+/**
+ * Modello di un messaggio di stato composto da una parte costante, il codice del collo e un'altra parte costante.
+ *
+ * <p>
+ * Ogni {@link StatoCollo} conserva il proprio modello con le parti costanti già separate, così che il messaggio
+ * di un collo si ottenga con una sola concatenazione, oppure venga scritto direttamente in un {@link Appendable}
+ * fornito dal chiamante senza costruire stringhe intermedie.
+ * </p>
+ *
+ * @see StatoCollo
+ * @see Collo#stampaStato()
+ */
+public class ModelloMessaggio {
+    private final String prefisso;
+    private final String suffisso;
+
+    /**
+     * Crea un nuovo modello di messaggio.
+     * @param prefisso il testo che precede il codice del collo.
+     * @param suffisso il testo che segue il codice del collo.
+     */
+    public ModelloMessaggio(String prefisso, String suffisso) {
+        this.prefisso = prefisso;
+        this.suffisso = suffisso;
+    }
+
+    /**
+     * Compone il messaggio per il codice indicato.
+     * @param codice il codice del collo.
+     * @return il messaggio completo.
+     */
+    public String componi(String codice) {
+        return prefisso.concat(codice).concat(suffisso);
+    }
+
+    /**
+     * Scrive il messaggio per il codice indicato nella destinazione fornita.
+     * @param codice il codice del collo.
+     * @param destinazione la destinazione in cui scrivere il messaggio.
+     * @throws IOException se la destinazione non può essere scritta.
+     */
+    public void scrivi(String codice, Appendable destinazione) throws IOException {
+        destinazione.append(prefisso).append(codice).append(suffisso);
+    }
+}
@@ -0,0 +1,41 @@
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * Strategia di caricamento basata sull'algoritmo Next Fit e sulla catena di responsabilità dei veicoli.
+ *
+ * <p>
+ * Ogni collo viene proposto al veicolo corrente con la stessa semantica di {@link GestoreColli#puoEssereInserito(Collo)};
+ * se la catena non riesce a gestirlo, si passa ciclicamente ai veicoli successivi. È la strategia storica del
+ * progetto e resta disponibile per confronto con {@link FirstFitDecrescente} e {@link BestFitDecrescente}.
+ * La catena viene percorsa tramite una {@link CatenaVeicoli}, che ne copia capienze e carichi in array primitivi.
+ * </p>
+ *
+ * @see StrategiaCaricamento
+ * @see GestoreColli
+ */
+public class NextFit implements StrategiaCaricamento {
+
+    @Override
+    public List<Collo> carica(List<Collo> colli, List<Veicolo> veicoli) {
+        List<Collo> colliNonGestiti = new ArrayList<>();
+        CatenaVeicoli catena = new CatenaVeicoli(veicoli);
+        int indiceCorrente = 0;
+        for (Collo collo : colli) {
+            boolean colloInserito = false; //controllo se sono riuscito a gestire o meno il collo
+            for (int i = 0; i < veicoli.size(); i++) {
+                int partenza = (indiceCorrente + i) % veicoli.size(); //ottengo ciclicamente il prossimo indice
+                int indice = catena.cerca(partenza, collo.getPeso());
+                if (indice >= 0) {
+                    catena.inserisci(indice, collo);
+                    colloInserito = true;
+                    indiceCorrente = partenza;
+                    break;
+                }
+            }
+            if (!colloInserito) {
+                colliNonGestiti.add(collo);
+            }
+        }
+        return colliNonGestiti;
+    }
+}
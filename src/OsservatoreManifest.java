@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+/**
+ * La classe {@code OsservatoreManifest} segue il file dei dati logistici mentre vengono aggiunte nuove righe,
+ * così che i nuovi colli entrino nel sistema senza riavviare l'applicazione.
+ *
+ * <p>
+ * La cartella del file viene osservata tramite un {@link WatchService}; a ogni modifica vengono letti solo i byte
+ * aggiunti dopo l'ultima posizione interpretata e le righe complete vengono passate a
+ * {@link FileManager#acquisisciRighe(List)}, che le assegna ai corrieri e carica i nuovi colli nella capacità
+ * residua dei veicoli. Una riga non ancora terminata da un a capo viene letta al giro successivo.
+ * Poiché alcuni file system non notificano le modifiche, la dimensione del file viene controllata anche
+ * periodicamente.
+ * </p>
+ *
+ * @see DataSingleton
+ */
+public class OsservatoreManifest {
+    private static final long INTERVALLO_CONTROLLO_MS = 1000; //controllo periodico in assenza di notifiche
+
+    private final FileManager fileManager;
+    private final Path manifest;
+    private long posizione; //primo byte non ancora interpretato
+    private volatile WatchService watchService;
+
+    /**
+     * Crea un osservatore che riprende la lettura del file dalla posizione fino a cui il {@link FileManager}
+     * lo ha già caricato.
+     * @param fileManager il {@link FileManager} presso cui registrare le nuove righe.
+     * @param manifest il file dei dati logistici da seguire.
+     */
+    public OsservatoreManifest(FileManager fileManager, Path manifest) {
+        this.fileManager = fileManager;
+        this.manifest = manifest.toAbsolutePath();
+        this.posizione = fileManager.getDimensioneLetta();
+    }
+
+    /**
+     * Avvia l'osservazione del file in un thread daemon.
+     * @throws IOException se non è possibile osservare la cartella del file.
+     */
+    public void avvia() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        manifest.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(this::osserva, "osservatore-manifest");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Interrompe l'osservazione del file.
+     */
+    public void shutdown() {
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void osserva() {
+        try {
+            while (true) {
+                WatchKey chiave = watchService.poll(INTERVALLO_CONTROLLO_MS, TimeUnit.MILLISECONDS);
+                if (chiave != null) {
+                    chiave.pollEvents(); //qualunque evento della cartella porta a controllare la dimensione del file
+                    chiave.reset();
+                }
+                leggiNuoveRighe();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            //osservazione terminata
+        }
+    }
+
+    /**
+     * Legge e interpreta le righe complete aggiunte al file dall'ultima lettura.
+     * @return il numero di righe interpretate.
+     */
+    public synchronized int leggiNuoveRighe() {
+        try {
+            if (!Files.isRegularFile(manifest)) {
+                return 0;
+            }
+            long dimensione = Files.size(manifest);
+            if (dimensione < posizione) {
+                new IOException("Il file " + manifest + " è stato accorciato, le nuove righe verranno lette dalla fine").printStackTrace();
+                posizione = dimensione;
+                return 0;
+            }
+            if (dimensione == posizione) {
+                return 0;
+            }
+            ByteBuffer buffer;
+            try (FileChannel canale = FileChannel.open(manifest, StandardOpenOption.READ)) {
+                buffer = ByteBuffer.allocate((int) Math.min(dimensione - posizione, Integer.MAX_VALUE - 8));
+                while (buffer.hasRemaining() && canale.read(buffer, posizione + buffer.position()) > 0) {
+                    //legge fino alla dimensione osservata
+                }
+            }
+            int fineUltimaRiga = buffer.position();
+            while (fineUltimaRiga > 0 && buffer.get(fineUltimaRiga - 1) != '\n') {
+                fineUltimaRiga--;
+            }
+            if (fineUltimaRiga == 0) {
+                return 0; //nessuna riga completa
+            }
+            List<String> righe = new ArrayList<>();
+            for (String riga : new String(buffer.array(), 0, fineUltimaRiga, StandardCharsets.UTF_8).split("\n")) {
+                riga = riga.endsWith("\r") ? riga.substring(0, riga.length() - 1) : riga;
+                if (!riga.isEmpty()) {
+                    righe.add(riga);
+                }
+            }
+            posizione += fineUltimaRiga;
+            fileManager.acquisisciRighe(righe);
+            return righe.size();
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+/**
+ * La classe {@code RegistroAssegnazioni} memorizza in quali veicoli di un {@link Corriere} sono stati caricati i suoi colli.
+ *
+ * <p>
+ * Colli e veicoli ricevono un identificativo intero progressivo alla loro prima assegnazione. Per ogni collo
+ * il registro conserva solo l'identificativo del veicolo in cui è stato caricato in un array di interi; i pochi
+ * colli caricati in più veicoli hanno gli identificativi dei veicoli aggiuntivi in una tabella separata.
+ * Un collo occupa così pochi byte, al posto di una voce di mappa e di una lista per ciascun collo.
+ * </p>
+ *
+ * <p>
+ * Le assegnazioni sono sincronizzate sul registro, mentre le letture non richiedono lock: il numero di colli
+ * è pubblicato con una scrittura volatile dopo che gli array sono stati aggiornati.
+ * </p>
+ *
+ * @see Corriere#getRegistroAssegnazioni()
+ */
+public class RegistroAssegnazioni {
+    private static final int NESSUNO = -1;
+
+    private volatile Collo[] colli = new Collo[16];
+    private volatile int[] veicoloPrimario = new int[16]; //id del veicolo di ogni collo, indicizzato per id del collo
+    private volatile Veicolo[] veicoli = new Veicolo[16];
+    private volatile int numeroColli;
+    private volatile int numeroVeicoli;
+    private final Map<Integer, int[]> veicoliAggiuntivi = new ConcurrentHashMap<>(); //solo per i colli divisi tra più veicoli
+
+    /**
+     * Registra che il collo è stato caricato nel veicolo indicato.
+     * @param c il collo caricato.
+     * @param v il veicolo in cui il collo è stato caricato.
+     * @return true se è la prima assegnazione del collo.
+     */
+    public synchronized boolean assegna(Collo c, Veicolo v) {
+        int idVeicolo = registraVeicolo(v);
+        int idCollo = c.getIdAssegnazione();
+        if (idCollo == NESSUNO) {
+            idCollo = numeroColli;
+            if (idCollo == colli.length) {
+                colli = Arrays.copyOf(colli, idCollo * 2);
+                veicoloPrimario = Arrays.copyOf(veicoloPrimario, idCollo * 2);
+            }
+            colli[idCollo] = c;
+            veicoloPrimario[idCollo] = idVeicolo;
+            numeroColli = idCollo + 1; //pubblica il collo ai lettori
+            c.setIdAssegnazione(idCollo);
+            return true;
+        }
+        int[] aggiuntivi = veicoliAggiuntivi.get(idCollo);
+        if (veicoloPrimario[idCollo] == idVeicolo || (aggiuntivi != null && contiene(aggiuntivi, idVeicolo))) {
+            return false;
+        }
+        int[] nuovi = aggiuntivi == null ? new int[1] : Arrays.copyOf(aggiuntivi, aggiuntivi.length + 1);
+        nuovi[nuovi.length - 1] = idVeicolo;
+        veicoliAggiuntivi.put(idCollo, nuovi);
+        return false;
+    }
+
+    private int registraVeicolo(Veicolo v) {
+        int id = v.getIdAssegnazione();
+        if (id == NESSUNO) {
+            id = numeroVeicoli;
+            if (id == veicoli.length) {
+                veicoli = Arrays.copyOf(veicoli, id * 2);
+            }
+            veicoli[id] = v;
+            numeroVeicoli = id + 1;
+            v.setIdAssegnazione(id);
+        }
+        return id;
+    }
+
+    private static boolean contiene(int[] array, int valore) {
+        for (int x : array) {
+            if (x == valore) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ritorna il numero di colli assegnati ad almeno un veicolo.
+     * @return il numero di colli registrati.
+     */
+    public int numeroColli() {
+        return numeroColli;
+    }
+
+    /**
+     * Ritorna il collo con l'identificativo indicato.
+     * @param id un identificativo compreso tra 0 e {@link #numeroColli()} escluso.
+     * @return il collo corrispondente.
+     */
+    public Collo getCollo(int id) {
+        if (id < 0 || id >= numeroColli) {
+            throw new IndexOutOfBoundsException("Collo non registrato: " + id);
+        }
+        return colli[id];
+    }
+
+    /**
+     * Verifica se il collo è stato caricato in un veicolo del corriere.
+     * @param c il collo da cercare.
+     * @return true se il collo è stato assegnato ad almeno un veicolo.
+     */
+    public boolean contiene(Collo c) {
+        int id = c.getIdAssegnazione();
+        return id != NESSUNO && id < numeroColli && colli[id] == c;
+    }
+
+    /**
+     * Ritorna il veicolo in cui il collo è stato caricato per primo.
+     * @param c il collo da cercare.
+     * @return il veicolo del collo, oppure null se il collo non è stato caricato.
+     */
+    public Veicolo getVeicoloPrimario(Collo c) {
+        if (!contiene(c)) {
+            return null;
+        }
+        return veicoli[veicoloPrimario[c.getIdAssegnazione()]];
+    }
+
+    /**
+     * Ritorna tutti i veicoli in cui il collo è stato caricato.
+     * @param c il collo da cercare.
+     * @return la lista dei veicoli del collo, vuota se il collo non è stato caricato.
+     */
+    public List<Veicolo> getVeicoli(Collo c) {
+        if (!contiene(c)) {
+            return List.of();
+        }
+        int id = c.getIdAssegnazione();
+        Veicolo[] tutti = veicoli;
+        int[] aggiuntivi = veicoliAggiuntivi.get(id);
+        if (aggiuntivi == null) {
+            return List.of(tutti[veicoloPrimario[id]]);
+        }
+        List<Veicolo> lista = new ArrayList<>(aggiuntivi.length + 1);
+        lista.add(tutti[veicoloPrimario[id]]);
+        for (int v : aggiuntivi) {
+            lista.add(tutti[v]);
+        }
+        return lista;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Riepilogo di un'esecuzione di {@link Corriere#CaricaColli()}.
+ *
+ * <p>
+ * Riporta quanti veicoli sono stati utilizzati, quanti ne sono stati aperti perché nessun veicolo esistente
+ * poteva contenere un collo, e il rapporto di riempimento dei veicoli utilizzati, così da poter confrontare
+ * le diverse {@link StrategiaCaricamento}.
+ * </p>
+ *
+ * @see Corriere
+ * @see StrategiaCaricamento
+ */
+public class RisultatoCaricamento {
+    private final int colliCaricati;
+    private final int veicoliUtilizzati;
+    private final int veicoliAperti;
+    private final long caricoTotale;
+    private final long capienzaUtilizzata;
+    private final long durataNanosecondi;
+
+    /**
+     * Crea un nuovo riepilogo di caricamento.
+     * @param colliCaricati il numero di colli caricati durante l'esecuzione.
+     * @param veicoliUtilizzati il numero di veicoli con almeno un collo a bordo.
+     * @param veicoliAperti il numero di veicoli aperti durante l'esecuzione.
+     * @param caricoTotale la somma dei carichi dei veicoli utilizzati.
+     * @param capienzaUtilizzata la somma delle capienze dei veicoli utilizzati.
+     * @param durataNanosecondi la durata dell'esecuzione in nanosecondi.
+     */
+    public RisultatoCaricamento(int colliCaricati, int veicoliUtilizzati, int veicoliAperti, long caricoTotale,
+                                long capienzaUtilizzata, long durataNanosecondi) {
+        this.colliCaricati = colliCaricati;
+        this.veicoliUtilizzati = veicoliUtilizzati;
+        this.veicoliAperti = veicoliAperti;
+        this.caricoTotale = caricoTotale;
+        this.capienzaUtilizzata = capienzaUtilizzata;
+        this.durataNanosecondi = durataNanosecondi;
+    }
+
+    /**
+     * @return il numero di colli caricati durante l'esecuzione.
+     */
+    public int getColliCaricati() {
+        return colliCaricati;
+    }
+
+    /**
+     * @return il numero di veicoli con almeno un collo a bordo.
+     */
+    public int getVeicoliUtilizzati() {
+        return veicoliUtilizzati;
+    }
+
+    /**
+     * @return il numero di veicoli aperti durante l'esecuzione.
+     */
+    public int getVeicoliAperti() {
+        return veicoliAperti;
+    }
+
+    /**
+     * @return la durata dell'esecuzione in nanosecondi.
+     */
+    public long getDurataNanosecondi() {
+        return durataNanosecondi;
+    }
+
+    /**
+     * Restituisce il rapporto di riempimento dei veicoli utilizzati.
+     * @return un valore tra 0 e 1 pari al carico totale diviso la capienza dei veicoli utilizzati.
+     */
+    public double getRapportoRiempimento() {
+        return capienzaUtilizzata == 0 ? 0 : (double) caricoTotale / capienzaUtilizzata;
+    }
+
+    @Override
+    public String toString() {
+        return "RisultatoCaricamento{" +
+                "colliCaricati=" + colliCaricati +
+                ", veicoliUtilizzati=" + veicoliUtilizzati +
+                ", veicoliAperti=" + veicoliAperti +
+                ", rapportoRiempimento=" + String.format("%.3f", getRapportoRiempimento()) +
+                ", durataMs=" + durataNanosecondi / 1_000_000 +
+                '}';
+    }
+}
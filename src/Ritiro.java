@@ -7,13 +7,22 @@
  * @see StatoCollo
  */
 public class Ritiro implements StatoCollo {
+    /**
+     * L'unica istanza dello stato "Ritiro", condivisa da tutti i colli.
+     */
+    public static final Ritiro ISTANZA = new Ritiro();
+    private static final ModelloMessaggio MESSAGGIO = new ModelloMessaggio("Il collo: ", " è stato ritirato con successo dal Corriere");
+
+    private Ritiro() {
+    }
+
     /**
      * Avanza il {@link Collo} fornito al prossimo stato, che in questo caso è "InTransito".
      * @param collo collo il cui stato deve essere avanzato.
      */
     @Override
     public void prossimoStato(Collo collo) {
-        collo.setStato(new InTransito());
+        collo.setStato(InTransito.ISTANZA);
     }
 
     /**
@@ -23,7 +32,24 @@ public class Ritiro implements StatoCollo {
      */
     @Override
     public String stampaStato(Collo collo) {
-        return "Il collo: " + collo.getCodice() + " è stato ritirato con successo dal Corriere";
+        return MESSAGGIO.componi(collo.getCodice());
+    }
+
+    /**
+     * Restituisce la fase "Ritiro" del ciclo di spedizione.
+     * @return {@link FaseCollo#RITIRO}
+     */
+    @Override
+    public FaseCollo getFase() {
+        return FaseCollo.RITIRO;
     }
 
+    /**
+     * Restituisce il modello del messaggio dello stato "Ritiro", con le parti costanti già separate.
+     * @return il {@link ModelloMessaggio} dello stato.
+     */
+    @Override
+    public ModelloMessaggio getModelloMessaggio() {
+        return MESSAGGIO;
+    }
 }
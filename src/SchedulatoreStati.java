@@ -0,0 +1,179 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * La classe {@code SchedulatoreStati} pianifica l'avanzamento dello stato dei colli di tutti i corrieri.
+ *
+ * <p>
+ * Al posto di un thread per corriere, un unico thread scandisce il tempo in tick di durata fissa su una
+ * ruota temporale (hashed timing wheel): ogni collo viene inserito nella posizione corrispondente alla sua
+ * scadenza e, quando la ruota la raggiunge, il suo avanzamento viene affidato a un pool di thread di
+ * dimensione configurabile. Ogni collo ha quindi la propria scadenza e l'avanzamento non richiede alcun
+ * lock globale: un collo si trova in una sola posizione della ruota alla volta, per cui non viene mai
+ * avanzato da due thread contemporaneamente.
+ * </p>
+ *
+ * <p>
+ * Le nuove pianificazioni vengono accodate in una coda concorrente e trasferite sulla ruota dal thread del
+ * tick, che è l'unico a modificarla. La scadenza di ogni collo è un istante di {@link System#nanoTime()}: se il thread
+ * del tick resta indietro e recupera i tick persi in rapida successione, i colli non vengono avanzati in anticipo
+ * ma tornano in attesa fino alla loro scadenza. L'istanza condivisa è ottenuta tramite {@link #getInstance()} e si
+ * configura con le proprietà di sistema {@code logistica.stati.thread} (thread di avanzamento, default 2)
+ * e {@code logistica.stati.tick} (durata del tick in millisecondi, default 1000).
+ * </p>
+ *
+ * <p>
+ * Le {@link Metriche} registrano la durata della scansione della ruota a ogni tick, quella dell'avanzamento di
+ * ciascun lotto di colli e il numero di colli scaduti.
+ * </p>
+ *
+ * @see Corriere#scheduleUpdate()
+ */
+public class SchedulatoreStati {
+    private static final int COLLI_PER_TASK = 512; //colli avanzati da ciascun task del pool
+    private static final Istogramma DURATA_SCANSIONE = Metriche.getInstance().istogramma("stati.scansione", "ns");
+    private static final Istogramma DURATA_LOTTO = Metriche.getInstance().istogramma("stati.lotto", "ns");
+    private static final LongAdder COLLI_SCADUTI = Metriche.getInstance().contatore("stati.colli_scaduti");
+
+    private final long durataTickNs;
+    private final int maschera;
+    private final ArrayDeque<Voce>[] ruota;
+    private final ConcurrentLinkedQueue<Voce> inAttesa;
+    private final ScheduledExecutorService orologio;
+    private final ExecutorService esecutori;
+    private long tickCorrente; //modificato solo dal thread del tick
+
+    /**
+     * Crea un nuovo schedulatore.
+     * @param thread il numero di thread che eseguono l'avanzamento dei colli.
+     * @param durataTick la durata di un tick in millisecondi.
+     * @param posizioni il numero di posizioni della ruota, arrotondato alla potenza di due successiva.
+     */
+    @SuppressWarnings("unchecked")
+    public SchedulatoreStati(int thread, long durataTick, int posizioni) {
+        int n = Integer.highestOneBit(Math.max(1, posizioni - 1)) << 1;
+        this.durataTickNs = TimeUnit.MILLISECONDS.toNanos(durataTick);
+        this.maschera = n - 1;
+        this.ruota = (ArrayDeque<Voce>[]) new ArrayDeque<?>[n];
+        for (int i = 0; i < n; i++) {
+            ruota[i] = new ArrayDeque<>();
+        }
+        this.inAttesa = new ConcurrentLinkedQueue<>();
+        this.orologio = Executors.newSingleThreadScheduledExecutor(fabbricaThread("ruota-stati"));
+        this.esecutori = Executors.newFixedThreadPool(thread, fabbricaThread("avanzamento-stati"));
+        this.orologio.scheduleAtFixedRate(this::tick, durataTick, durataTick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Restituisce lo schedulatore condiviso, creandolo al primo utilizzo.
+     * @return l'unica istanza condivisa di {@link SchedulatoreStati}.
+     */
+    public static SchedulatoreStati getInstance() {
+        return Condiviso.ISTANZA;
+    }
+
+    /**
+     * Pianifica l'avanzamento dello stato di un collo dopo il ritardo indicato.
+     * Alla scadenza viene invocato {@link Corriere#avanzaCollo(Collo)}; se questo restituisce true,
+     * il collo viene pianificato di nuovo dopo {@link Corriere#PERIODO_AGGIORNAMENTO_MS}.
+     * @param collo il collo da avanzare.
+     * @param corriere il corriere che gestisce il collo.
+     * @param ritardo il ritardo in millisecondi.
+     */
+    public void pianifica(Collo collo, Corriere corriere, long ritardo) {
+        inAttesa.add(new Voce(collo, corriere, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ritardo)));
+    }
+
+    /**
+     * Termina i thread dello schedulatore. I colli ancora pianificati non verranno più avanzati.
+     */
+    public void shutdown() {
+        orologio.shutdownNow();
+        esecutori.shutdown();
+    }
+
+    private void tick() {
+        long inizio = System.nanoTime();
+        tickCorrente++;
+        for (Voce voce; (voce = inAttesa.poll()) != null; ) {
+            voce.scadenza = tickCorrente + inTick(voce.istanteScadenza - inizio);
+            ruota[(int) (voce.scadenza & maschera)].addLast(voce);
+        }
+        ArrayDeque<Voce> posizione = ruota[(int) (tickCorrente & maschera)];
+        List<Voce> scadute = new ArrayList<>();
+        for (int i = posizione.size(); i > 0; i--) {
+            Voce voce = posizione.pollFirst();
+            if (voce.scadenza > tickCorrente) {
+                posizione.addLast(voce); //scade in un giro successivo della ruota
+            } else if (voce.istanteScadenza - inizio > 0) {
+                inAttesa.add(voce); //tick di recupero in anticipo sulla scadenza, ripianificato dal tick successivo
+            } else {
+                scadute.add(voce);
+            }
+        }
+        for (int i = 0; i < scadute.size(); i += COLLI_PER_TASK) {
+            List<Voce> lotto = scadute.subList(i, Math.min(i + COLLI_PER_TASK, scadute.size()));
+            esecutori.execute(() -> avanza(lotto));
+        }
+        if (Metriche.ABILITATE) {
+            COLLI_SCADUTI.add(scadute.size());
+            DURATA_SCANSIONE.registra(System.nanoTime() - inizio);
+        }
+    }
+
+    private void avanza(List<Voce> lotto) {
+        long inizio = System.nanoTime();
+        for (Voce voce : lotto) {
+            if (voce.corriere.avanzaCollo(voce.collo)) {
+                voce.istanteScadenza = inizio + TimeUnit.MILLISECONDS.toNanos(Corriere.PERIODO_AGGIORNAMENTO_MS); //la voce viene riutilizzata
+                inAttesa.add(voce);
+            }
+        }
+        if (Metriche.ABILITATE) {
+            DURATA_LOTTO.registra(System.nanoTime() - inizio);
+        }
+    }
+
+    //tick interi che mancano a un ritardo in nanosecondi, zero se il ritardo è già trascorso
+    private long inTick(long ritardoNs) {
+        return ritardoNs <= 0 ? 0 : (ritardoNs + durataTickNs - 1) / durataTickNs;
+    }
+
+    private static ThreadFactory fabbricaThread(String nome) {
+        AtomicInteger contatore = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, nome + "-" + contatore.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static class Voce {
+        private final Collo collo;
+        private final Corriere corriere;
+        private long istanteScadenza; //System.nanoTime() a partire dal quale il collo va avanzato
+        private long scadenza; //tick in cui il collo deve essere avanzato
+
+        private Voce(Collo collo, Corriere corriere, long istanteScadenza) {
+            this.collo = collo;
+            this.corriere = corriere;
+            this.istanteScadenza = istanteScadenza;
+        }
+    }
+
+    //inizializzazione pigra e thread-safe dell'istanza condivisa
+    private static class Condiviso {
+        private static final SchedulatoreStati ISTANZA = new SchedulatoreStati(
+                Integer.getInteger("logistica.stati.thread", 2),
+                Long.getLong("logistica.stati.tick", 1000L),
+                512);
+    }
+}
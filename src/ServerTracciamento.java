@@ -0,0 +1,284 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+/**
+ * La classe {@code ServerTracciamento} espone il tracciamento dei colli tramite HTTP/JSON, senza interfaccia grafica,
+ * così che un portale clienti possa servire molte richieste contemporanee da una sola JVM.
+ *
+ * <p>
+ * Il server usa l'{@link HttpServer} del JDK. Ogni richiesta viene eseguita su un proprio virtual thread quando la
+ * JVM li supporta; altrimenti su un pool di thread di dimensione fissa, configurabile con la proprietà di sistema
+ * {@code logistica.server.thread} (default 8 per core). Il numero di connessioni persistenti mantenute aperte si
+ * configura con {@code logistica.server.connessioni} (default 4096). Le operazioni disponibili sono:
+ * <ul>
+ *     <li>{@code POST /login} con corpo {@code email=...&password=...}: verifica le credenziali tramite
+ *     l'{@link ArchivioCredenziali} e restituisce il token della sessione aperta dall'archivio;</li>
+ *     <li>{@code GET /traccia?codice=...}: traccia un collo del destinatario autenticato tramite {@link Mediator};</li>
+ *     <li>{@code POST /traccia} con un codice di spedizione per riga (o separati da virgole): traccia più colli
+ *     con una sola richiesta tramite {@link Mediator#tracciaColli(Destinatario, java.util.Collection)}.</li>
+ * </ul>
+ * Le richieste di tracciamento devono riportare l'intestazione {@code Authorization: Bearer <token>}. I token
+ * scadono dopo la durata indicata dalla proprietà {@code logistica.credenziali.sessione}.
+ * </p>
+ *
+ * @see Main
+ * @see CentroDiSmistamento#tracciaCollo(Destinatario, String)
+ */
+public class ServerTracciamento {
+    /** Numero massimo di codici accettati da una richiesta di tracciamento multiplo. */
+    public static final int MASSIMO_CODICI = 1000;
+    private static final int DIMENSIONE_MASSIMA_CORPO = 64 * 1024;
+    private static final int CONNESSIONI_MASSIME = Integer.getInteger("logistica.server.connessioni", 4096);
+
+    private final FileManager fileManager;
+    private final ArchivioCredenziali archivioCredenziali;
+    private HttpServer server;
+    private ExecutorService esecutore;
+
+    /**
+     * Crea un server che traccia i colli dei destinatari registrati nel {@link FileManager}.
+     * @param fileManager il {@link FileManager} con i destinatari e i colli.
+     * @param archivioCredenziali l'archivio con cui verificare le credenziali.
+     */
+    public ServerTracciamento(FileManager fileManager, ArchivioCredenziali archivioCredenziali) {
+        this.fileManager = fileManager;
+        this.archivioCredenziali = archivioCredenziali;
+    }
+
+    /**
+     * Avvia il server sull'indirizzo indicato.
+     * @param indirizzo l'indirizzo e la porta su cui ascoltare; la porta 0 sceglie una porta libera.
+     * @throws IOException se non è possibile aprire la porta.
+     */
+    public void avvia(InetSocketAddress indirizzo) throws IOException {
+        //senza TCP_NODELAY ogni risposta breve attende l'ACK ritardato del client, circa 40 ms per richiesta;
+        //il limite predefinito di 200 connessioni inattive chiuderebbe le connessioni persistenti dei client in eccesso
+        impostaSeAssente("sun.net.httpserver.nodelay", "true");
+        impostaSeAssente("sun.net.httpserver.maxIdleConnections", String.valueOf(CONNESSIONI_MASSIME));
+        server = HttpServer.create(indirizzo, CONNESSIONI_MASSIME);
+        esecutore = creaEsecutore();
+        server.setExecutor(esecutore);
+        server.createContext("/login", gestoreProtetto(this::gestisciLogin));
+        server.createContext("/traccia", gestoreProtetto(this::gestisciTracciamento));
+        server.start();
+    }
+
+    /**
+     * Ritorna la porta su cui il server è in ascolto.
+     * @return la porta del server.
+     */
+    public int getPorta() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Arresta il server, attendendo al massimo il numero di secondi indicato per le richieste in corso.
+     * @param secondi il tempo massimo di attesa.
+     */
+    public void shutdown(int secondi) {
+        server.stop(secondi);
+        esecutore.shutdown();
+    }
+
+    private static void impostaSeAssente(String proprieta, String valore) {
+        if (System.getProperty(proprieta) == null) {
+            System.setProperty(proprieta, valore);
+        }
+    }
+
+    //un virtual thread per richiesta se disponibili (Java 21+), altrimenti un pool di dimensione fissa
+    private static ExecutorService creaEsecutore() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int thread = Integer.getInteger("logistica.server.thread", 8 * Runtime.getRuntime().availableProcessors());
+            AtomicInteger contatore = new AtomicInteger();
+            return Executors.newFixedThreadPool(thread, r -> {
+                Thread t = new Thread(r, "server-tracciamento-" + contatore.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private void gestisciLogin(HttpExchange scambio) throws IOException {
+        if (!"POST".equals(scambio.getRequestMethod())) {
+            rispondi(scambio, 405, errore("Metodo non consentito"));
+            return;
+        }
+        Map<String, String> parametri = leggiParametri(leggiCorpo(scambio));
+        if (parametri == null) {
+            rispondi(scambio, 413, errore("Richiesta troppo grande"));
+            return;
+        }
+        String email = parametri.getOrDefault("email", "");
+        char[] password = parametri.getOrDefault("password", "").toCharArray();
+        Destinatario destinatario = fileManager.getDestinatarioMap().get(email);
+        String token;
+        try {
+            token = archivioCredenziali.accedi(destinatario, password).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                rispondi(scambio, 503, errore("Troppi accessi in corso"));
+                return;
+            }
+            throw e;
+        }
+        if (token == null) {
+            rispondi(scambio, 401, errore("Credenziali non valide"));
+            return;
+        }
+        rispondi(scambio, 200, "{\"token\":" + json(token) + "}");
+    }
+
+    private void gestisciTracciamento(HttpExchange scambio) throws IOException {
+        Destinatario destinatario = autentica(scambio);
+        if (destinatario == null) {
+            rispondi(scambio, 401, errore("Token mancante o scaduto"));
+            return;
+        }
+        if ("GET".equals(scambio.getRequestMethod())) {
+            String query = scambio.getRequestURI().getRawQuery();
+            String codice = query == null ? null : leggiParametri(query).get("codice");
+            if (codice == null) {
+                rispondi(scambio, 400, errore("Parametro codice mancante"));
+                return;
+            }
+            rispondi(scambio, 200, "{\"codice\":" + json(codice) + ",\"stato\":" + json(destinatario.tracciaCollo(codice)) + "}");
+        } else if ("POST".equals(scambio.getRequestMethod())) {
+            String corpo = leggiCorpo(scambio);
+            if (corpo == null) {
+                rispondi(scambio, 413, errore("Richiesta troppo grande"));
+                return;
+            }
+            List<String> codici = new ArrayList<>();
+            for (String codice : corpo.split("[,\\r\\n]+")) {
+                codice = codice.trim();
+                if (!codice.isEmpty()) {
+                    codici.add(codice);
+                }
+            }
+            if (codici.size() > MASSIMO_CODICI) {
+                rispondi(scambio, 413, errore("Al massimo " + MASSIMO_CODICI + " codici per richiesta"));
+                return;
+            }
+            Map<String, String> stati = destinatario.tracciaColli(codici);
+            StringBuilder risposta = new StringBuilder(stati.size() * 64).append('{');
+            for (Map.Entry<String, String> voce : stati.entrySet()) {
+                if (risposta.length() > 1) {
+                    risposta.append(',');
+                }
+                risposta.append(json(voce.getKey())).append(':').append(json(voce.getValue()));
+            }
+            rispondi(scambio, 200, risposta.append('}').toString());
+        } else {
+            rispondi(scambio, 405, errore("Metodo non consentito"));
+        }
+    }
+
+    private Destinatario autentica(HttpExchange scambio) {
+        String intestazione = scambio.getRequestHeaders().getFirst("Authorization");
+        if (intestazione == null || !intestazione.startsWith("Bearer ")) {
+            return null;
+        }
+        return archivioCredenziali.getDestinatario(intestazione.substring("Bearer ".length()).trim());
+    }
+
+    //corpo della richiesta, oppure null se supera la dimensione massima
+    private static String leggiCorpo(HttpExchange scambio) throws IOException {
+        ByteArrayOutputStream corpo = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = scambio.getRequestBody()) {
+            int letti;
+            while ((letti = in.read(buffer)) > 0) {
+                if (corpo.size() + letti > DIMENSIONE_MASSIMA_CORPO) {
+                    return null;
+                }
+                corpo.write(buffer, 0, letti);
+            }
+        }
+        return corpo.toString(StandardCharsets.UTF_8);
+    }
+
+    //parametri codificati come application/x-www-form-urlencoded, oppure null se il testo è null
+    private static Map<String, String> leggiParametri(String testo) {
+        if (testo == null) {
+            return null;
+        }
+        Map<String, String> parametri = new HashMap<>();
+        for (String coppia : testo.split("&")) {
+            int uguale = coppia.indexOf('=');
+            if (uguale > 0) {
+                parametri.put(URLDecoder.decode(coppia.substring(0, uguale), StandardCharsets.UTF_8),
+                        URLDecoder.decode(coppia.substring(uguale + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parametri;
+    }
+
+    private static void rispondi(HttpExchange scambio, int codice, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        scambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        scambio.sendResponseHeaders(codice, bytes.length);
+        try (OutputStream out = scambio.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    //chiude lo scambio al termine del gestore e, se il gestore fallisce prima di rispondere, risponde con un errore 500
+    private static HttpHandler gestoreProtetto(HttpHandler gestore) {
+        return scambio -> {
+            try (scambio) {
+                try {
+                    gestore.handle(scambio);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    if (scambio.getResponseCode() == -1) {
+                        rispondi(scambio, 500, errore("Errore interno del server"));
+                    }
+                }
+            }
+        };
+    }
+
+    private static String errore(String messaggio) {
+        return "{\"errore\":" + json(messaggio) + "}";
+    }
+
+    private static String json(String testo) {
+        StringBuilder sb = new StringBuilder(testo.length() + 2).append('"');
+        for (int i = 0; i < testo.length(); i++) {
+            char c = testo.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
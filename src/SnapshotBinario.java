@@ -0,0 +1,250 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * La classe {@code SnapshotBinario} scrive e rilegge una fotografia binaria dei dati gestiti da un {@link FileManager}.
+ *
+ * <p>
+ * Lo snapshot contiene destinatari, corrieri, veicoli con il loro carico, colli con il loro {@link StatoCollo}
+ * corrente e l'assegnazione di ogni collo ai veicoli in cui è stato caricato. Permette di ripartire senza
+ * interpretare di nuovo il file di testo e senza rieseguire il caricamento dei colli nei veicoli;
+ * il file di testo resta il formato di importazione.
+ * </p>
+ *
+ * <p>
+ * Il formato è versionato e composto da sezioni con prefisso di lunghezza:
+ * <pre>
+ * int magic, int versione, long lunghezza del file sorgente, long ultima modifica del file sorgente
+ * int numero destinatari, per ognuno: nome, cognome, indirizzo, email,
+ *                                   int iterazioni, sale e hash della password come byte con prefisso di lunghezza
+ * int numero corrieri, per ognuno:
+ *     nome
+ *     int numero veicoli, per ognuno: codice, byte tipo, int capienza, int carico corrente
+ *     int numero colli, per ognuno: codice, mittente, int destinatario, int peso, codice spedizione,
+ *                                   byte stato, int numero veicoli, int[] indici dei veicoli del corriere
+ * </pre>
+ * Ogni stringa è scritta come un int con la lunghezza in byte seguito dalla sua codifica UTF-8.
+ * La lettura avviene mappando il file in memoria.
+ * </p>
+ *
+ * @see FileManager
+ * @see DataSingleton
+ */
+public class SnapshotBinario {
+    private static final int MAGIC = 0x4C47534E; //"LGSN"
+    private static final int VERSIONE = 2;
+
+    private FileManager fileManager;
+    private byte[] appoggio = new byte[128]; //buffer riutilizzato per decodificare le stringhe
+
+    /**
+     * Crea uno snapshot dei dati gestiti dal {@link FileManager} indicato.
+     * @param fileManager il {@link FileManager} da salvare o da popolare.
+     */
+    public SnapshotBinario(FileManager fileManager) {
+        this.fileManager = fileManager;
+    }
+
+    /**
+     * Scrive lo snapshot nel percorso indicato. Il file viene prima scritto in un file temporaneo
+     * e poi spostato, così che uno snapshot interrotto non sostituisca quello precedente.
+     * @param percorsoSnapshot il percorso del file di snapshot.
+     * @param sorgente il file di testo da cui provengono i dati, usato per verificare che lo snapshot sia aggiornato.
+     * @throws IOException se lo snapshot non può essere scritto.
+     */
+    public void scrivi(Path percorsoSnapshot, Path sorgente) throws IOException {
+        Path temporaneo = percorsoSnapshot.resolveSibling(percorsoSnapshot.getFileName() + ".tmp");
+        List<Destinatario> destinatari = new ArrayList<>(fileManager.getDestinatarioMap().values());
+        Map<Destinatario, Integer> indiciDestinatari = new IdentityHashMap<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaneo), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSIONE);
+            out.writeLong(Files.size(sorgente));
+            out.writeLong(Files.getLastModifiedTime(sorgente).toMillis());
+
+            out.writeInt(destinatari.size());
+            for (Destinatario d : destinatari) {
+                indiciDestinatari.put(d, indiciDestinatari.size());
+                scriviStringa(out, d.getNome());
+                scriviStringa(out, d.getCognome());
+                scriviStringa(out, d.getIndirizzo());
+                scriviStringa(out, d.getEmail());
+                scriviCredenziale(out, d.getCredenziale());
+            }
+
+            out.writeInt(fileManager.getCorriereMap().size());
+            for (Corriere corriere : fileManager.getCorriereMap().values()) {
+                scriviStringa(out, corriere.getNome());
+                List<Veicolo> veicoli = corriere.getVeicoli();
+                Map<Veicolo, Integer> indiciVeicoli = new IdentityHashMap<>();
+                out.writeInt(veicoli.size());
+                for (Veicolo v : veicoli) {
+                    indiciVeicoli.put(v, indiciVeicoli.size());
+                    scriviStringa(out, v.getCodice());
+                    out.writeByte(v.getTipo().ordinal());
+                    out.writeInt(v.getCapienzaContainer());
+                    out.writeInt(v.getCaricoCorrente());
+                }
+
+                List<Collo> inAttesa = corriere.getColli();
+                RegistroAssegnazioni assegnazioni = corriere.getRegistroAssegnazioni();
+                int caricati = assegnazioni.numeroColli();
+                out.writeInt(inAttesa.size() + caricati);
+                for (Collo c : inAttesa) {
+                    scriviCollo(out, c, indiciDestinatari, List.of(), indiciVeicoli);
+                }
+                for (int c = 0; c < caricati; c++) {
+                    Collo collo = assegnazioni.getCollo(c);
+                    scriviCollo(out, collo, indiciDestinatari, assegnazioni.getVeicoli(collo), indiciVeicoli);
+                }
+            }
+        }
+        Files.move(temporaneo, percorsoSnapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Legge lo snapshot dal percorso indicato e registra i dati presso il {@link FileManager}.
+     * I dati vengono registrati solo se lo snapshot è stato letto completamente.
+     * @param percorsoSnapshot il percorso del file di snapshot.
+     * @param sorgente il file di testo da cui provengono i dati.
+     * @return true se lo snapshot è stato caricato, false se non corrisponde più al file sorgente.
+     * @throws IOException se lo snapshot non può essere letto o non è valido.
+     */
+    public boolean leggi(Path percorsoSnapshot, Path sorgente) throws IOException {
+        try (FileChannel canale = FileChannel.open(percorsoSnapshot, StandardOpenOption.READ)) {
+            if (canale.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot troppo grande: " + percorsoSnapshot);
+            }
+            MappedByteBuffer buffer = canale.map(FileChannel.MapMode.READ_ONLY, 0, canale.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Il file non è uno snapshot: " + percorsoSnapshot);
+            }
+            if (buffer.getInt() != VERSIONE) {
+                return false;
+            }
+            long dimensioneSorgente = buffer.getLong();
+            if (dimensioneSorgente != Files.size(sorgente) || buffer.getLong() != Files.getLastModifiedTime(sorgente).toMillis()) {
+                return false;
+            }
+
+            Destinatario[] destinatari = new Destinatario[buffer.getInt()];
+            for (int i = 0; i < destinatari.length; i++) {
+                destinatari[i] = fileManager.creaDestinatario(leggiStringa(buffer), leggiStringa(buffer),
+                        leggiStringa(buffer), leggiStringa(buffer), leggiCredenziale(buffer));
+            }
+
+            TipoVeicolo[] tipi = TipoVeicolo.values();
+            int numeroCorrieri = buffer.getInt();
+            List<Corriere> corrieri = new ArrayList<>(numeroCorrieri);
+            List<Veicolo[]> veicoliCorrieri = new ArrayList<>(numeroCorrieri);
+            List<Collo[]> colliCorrieri = new ArrayList<>(numeroCorrieri);
+            List<Veicolo[][]> assegnazioniCorrieri = new ArrayList<>(numeroCorrieri);
+            for (int i = 0; i < numeroCorrieri; i++) {
+                Corriere corriere = new Corriere(fileManager.interna(leggiStringa(buffer)));
+                Veicolo[] veicoli = new Veicolo[buffer.getInt()];
+                for (int v = 0; v < veicoli.length; v++) {
+                    veicoli[v] = new Veicolo(leggiStringa(buffer), tipi[buffer.get()], buffer.getInt(), corriere);
+                    veicoli[v].ripristinaCarico(buffer.getInt());
+                }
+                Collo[] colli = new Collo[buffer.getInt()];
+                Veicolo[][] assegnazioni = new Veicolo[colli.length][];
+                for (int c = 0; c < colli.length; c++) {
+                    String codice = leggiStringa(buffer);
+                    String mittente = leggiStringa(buffer);
+                    Destinatario destinatario = destinatari[buffer.getInt()];
+                    int peso = buffer.getInt();
+                    colli[c] = fileManager.creaCollo(codice, mittente, destinatario, peso, leggiStringa(buffer));
+                    colli[c].setStato(FaseCollo.daOrdinale(buffer.get()).getStato());
+                    assegnazioni[c] = new Veicolo[buffer.getInt()];
+                    for (int a = 0; a < assegnazioni[c].length; a++) {
+                        assegnazioni[c][a] = veicoli[buffer.getInt()];
+                    }
+                }
+                corrieri.add(corriere);
+                veicoliCorrieri.add(veicoli);
+                colliCorrieri.add(colli);
+                assegnazioniCorrieri.add(assegnazioni);
+            }
+
+            for (Destinatario d : destinatari) {
+                fileManager.registraDestinatario(d);
+            }
+            for (int i = 0; i < numeroCorrieri; i++) {
+                Corriere corriere = corrieri.get(i);
+                fileManager.registraCorriere(corriere);
+                for (Veicolo v : veicoliCorrieri.get(i)) {
+                    fileManager.registraVeicolo(v, corriere);
+                }
+                Collo[] colli = colliCorrieri.get(i);
+                for (int c = 0; c < colli.length; c++) {
+                    fileManager.ripristinaCollo(colli[c], corriere, List.of(assegnazioniCorrieri.get(i)[c]));
+                }
+            }
+            fileManager.setDimensioneLetta(dimensioneSorgente);
+            return true;
+        }
+    }
+
+    private static void scriviCollo(DataOutputStream out, Collo c, Map<Destinatario, Integer> indiciDestinatari,
+                             List<Veicolo> veicoli, Map<Veicolo, Integer> indiciVeicoli) throws IOException {
+        scriviStringa(out, c.getCodice());
+        scriviStringa(out, c.getMittente());
+        out.writeInt(indiciDestinatari.get(c.getDestinatario()));
+        out.writeInt(c.getPeso());
+        scriviStringa(out, c.getCodiceSpedizione());
+        out.writeByte(c.getFase().ordinal());
+        out.writeInt(veicoli.size());
+        for (Veicolo v : veicoli) {
+            out.writeInt(indiciVeicoli.get(v));
+        }
+    }
+
+    private static void scriviStringa(DataOutputStream out, String stringa) throws IOException {
+        byte[] bytes = stringa.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void scriviCredenziale(DataOutputStream out, Credenziale credenziale) throws IOException {
+        out.writeInt(credenziale.getIterazioni());
+        scriviByte(out, credenziale.getSale());
+        scriviByte(out, credenziale.getHash());
+    }
+
+    private static void scriviByte(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Credenziale leggiCredenziale(ByteBuffer buffer) {
+        int iterazioni = buffer.getInt();
+        return new Credenziale(leggiByte(buffer), leggiByte(buffer), iterazioni);
+    }
+
+    private static byte[] leggiByte(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private String leggiStringa(ByteBuffer buffer) {
+        int lunghezza = buffer.getInt();
+        if (lunghezza > appoggio.length) {
+            appoggio = new byte[Math.max(lunghezza, appoggio.length * 2)];
+        }
+        buffer.get(appoggio, 0, lunghezza);
+        return new String(appoggio, 0, lunghezza, StandardCharsets.UTF_8);
+    }
+}
@@ -16,4 +16,17 @@ public interface StatoCollo {
      * @return Una stringa che descrive lo stato corrente del collo.
      */
     String stampaStato(Collo collo);
+
+    /**
+     * Restituisce la fase del ciclo di spedizione rappresentata da questo stato.
+     * Le implementazioni sono prive di campi e condivise da tutti i colli tramite {@link FaseCollo}.
+     * @return la {@link FaseCollo} corrispondente allo stato.
+     */
+    FaseCollo getFase();
+
+    /**
+     * Restituisce il modello del messaggio di stato, con le parti costanti già separate dal codice del collo.
+     * @return il {@link ModelloMessaggio} dello stato.
+     */
+    ModelloMessaggio getModelloMessaggio();
 }
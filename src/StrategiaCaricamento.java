@@ -0,0 +1,25 @@
+import java.util.List;
+/**
+ * Interfaccia che rappresenta una strategia di caricamento dei colli nei veicoli di un {@link Corriere},
+ * ovvero un algoritmo approssimato per il problema del Bin Packing.
+ *
+ * <p>
+ * Il {@link Corriere} ordina i veicoli per capienza e i colli per peso in maniera decrescente prima di
+ * invocare la strategia; la strategia inserisce i colli nei veicoli esistenti e restituisce quelli che
+ * non ha potuto sistemare, per i quali il corriere aprirà nuovi veicoli.
+ * </p>
+ *
+ * @see NextFit
+ * @see FirstFitDecrescente
+ * @see BestFitDecrescente
+ * @see Corriere
+ */
+public interface StrategiaCaricamento {
+    /**
+     * Carica i colli forniti nei veicoli forniti.
+     * @param colli i colli da caricare, ordinati per peso decrescente.
+     * @param veicoli i veicoli disponibili, ordinati per capienza decrescente.
+     * @return i colli che non è stato possibile inserire in nessun veicolo.
+     */
+    List<Collo> carica(List<Collo> colli, List<Veicolo> veicoli);
+}
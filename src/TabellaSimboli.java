@@ -0,0 +1,128 @@
+import java.util.Arrays;
+/**
+ * La classe {@code TabellaSimboli} conserva una sola copia di ogni stringa ripetuta nei dati caricati
+ * (nomi dei corrieri, mittenti, email dei destinatari) e assegna a ciascuna un identificativo intero progressivo.
+ *
+ * <p>
+ * Le stringhe sono memorizzate in un array indicizzato per identificativo, mentre la ricerca avviene in una
+ * tabella hash a indirizzamento aperto che contiene solo interi. L'inserimento di un nuovo simbolo è sincronizzato;
+ * la ricerca di un simbolo già presente non richiede lock, per cui più thread possono internare in parallelo
+ * stringhe che si ripetono spesso. Una ricerca concorrente a un inserimento può non vedere il simbolo appena
+ * inserito: in quel caso {@link #id(String)} lo cerca di nuovo tenendo il lock.
+ * </p>
+ *
+ * @see FileManager
+ */
+public class TabellaSimboli {
+    private static final int ASSENTE = -1;
+
+    private volatile Stato stato = new Stato(new int[64], new String[32]);
+    private int dimensione; //modificato solo tenendo il lock
+
+    /**
+     * Ritorna l'identificativo della stringa, registrandola se non è già presente.
+     * @param simbolo la stringa da registrare.
+     * @return l'identificativo del simbolo, compreso tra 0 e {@link #dimensione()} escluso.
+     */
+    public int id(String simbolo) {
+        int id = cerca(simbolo);
+        if (id != ASSENTE) {
+            return id;
+        }
+        synchronized (this) {
+            id = cerca(simbolo);
+            return id != ASSENTE ? id : aggiungi(simbolo);
+        }
+    }
+
+    /**
+     * Ritorna la copia condivisa della stringa, registrandola se non è già presente.
+     * @param simbolo la stringa da internare.
+     * @return una stringa uguale a quella fornita e condivisa da tutti gli oggetti che la usano.
+     */
+    public String interna(String simbolo) {
+        return simbolo(id(simbolo));
+    }
+
+    /**
+     * Ritorna l'identificativo della stringa senza registrarla.
+     * @param simbolo la stringa da cercare.
+     * @return l'identificativo del simbolo, oppure -1 se la stringa non è registrata.
+     */
+    public int cerca(String simbolo) {
+        Stato s = stato;
+        int maschera = s.posizioni.length - 1;
+        for (int i = disperdi(simbolo.hashCode()) & maschera; ; i = (i + 1) & maschera) {
+            int id = s.posizioni[i] - 1;
+            if (id == ASSENTE) {
+                return ASSENTE;
+            }
+            String presente = s.simboli[id]; //può essere null se l'inserimento non è ancora visibile
+            if (simbolo.equals(presente)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Ritorna la stringa con l'identificativo indicato.
+     * @param id l'identificativo del simbolo.
+     * @return la stringa corrispondente.
+     */
+    public String simbolo(int id) {
+        return stato.simboli[id];
+    }
+
+    /**
+     * Ritorna il numero di simboli registrati.
+     * @return il numero di simboli.
+     */
+    public synchronized int dimensione() {
+        return dimensione;
+    }
+
+    private int aggiungi(String simbolo) {
+        Stato s = stato;
+        if (dimensione == s.simboli.length) { //la tabella resta piena al massimo per metà
+            s = ridimensiona(s);
+        }
+        int id = dimensione++;
+        s.simboli[id] = simbolo; //prima la stringa e poi la posizione che la rende raggiungibile
+        s.posizioni[posizioneLibera(s.posizioni, simbolo.hashCode())] = id + 1;
+        return id;
+    }
+
+    private Stato ridimensiona(Stato s) {
+        int[] posizioni = new int[s.posizioni.length * 2];
+        for (int id = 0; id < dimensione; id++) {
+            posizioni[posizioneLibera(posizioni, s.simboli[id].hashCode())] = id + 1;
+        }
+        Stato nuovo = new Stato(posizioni, Arrays.copyOf(s.simboli, posizioni.length / 2));
+        stato = nuovo;
+        return nuovo;
+    }
+
+    private static int disperdi(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int posizioneLibera(int[] posizioni, int hash) {
+        int maschera = posizioni.length - 1;
+        int i = disperdi(hash) & maschera;
+        while (posizioni[i] != 0) {
+            i = (i + 1) & maschera;
+        }
+        return i;
+    }
+
+    //tabella delle posizioni (id + 1, 0 se libera) e simboli per identificativo, pubblicati insieme
+    private static class Stato {
+        private final int[] posizioni;
+        private final String[] simboli;
+
+        private Stato(int[] posizioni, String[] simboli) {
+            this.posizioni = posizioni;
+            this.simboli = simboli;
+        }
+    }
+}
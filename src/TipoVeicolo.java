@@ -3,21 +3,33 @@
   * Questa enumerazione definisce i vari tipi di veicoli che possono essere utilizzati per trasportare i {@link Collo} nel sistema.
   * Ogni tipo di veicolo può avere proprietà e capacità di carico diverse, e questa enumerazione serve a categorizzare tali veicoli.
   * Attualmente, sono supportati i seguenti tipi di veicoli: CAMION, FURGONE, e AUTOCARRO.
+  * Ogni tipo ha una capienza standard, usata dal {@link FornitoreVeicoli} quando apre un nuovo veicolo.
   * @see Collo
   * @see Veicolo
  */
 public enum TipoVeicolo {
-    CAMION("CAMION"),
-    FURGONE("FURGONE"),
-    AUTOCARRO("AUTOCARRO");
+    CAMION("CAMION", 1500),
+    FURGONE("FURGONE", 500),
+    AUTOCARRO("AUTOCARRO", 1000);
     private final String tipo;
+    private final int capienzaStandard;
 
     /**
      * Costruttore dell'enumerazione che inizializza il tipo di veicolo con una stringa fornita.
      * @param tipo La rappresentazione stringa del tipo di veicolo.
+     * @param capienzaStandard La capienza del container di un nuovo veicolo di questo tipo.
      */
-    TipoVeicolo(String tipo) {
+    TipoVeicolo(String tipo, int capienzaStandard) {
         this.tipo = tipo;
+        this.capienzaStandard = capienzaStandard;
+    }
+
+    /**
+     * Restituisce la capienza del container con cui viene aperto un nuovo veicolo di questo tipo.
+     * @return capienzaStandard la capienza standard del tipo di veicolo.
+     */
+    public int getCapienzaStandard() {
+        return capienzaStandard;
     }
 
     /**
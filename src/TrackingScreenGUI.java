@@ -1,4 +1,4 @@
-import javax.swing.DefaultListModel;
+import javax.swing.DefaultListCellRenderer;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -9,15 +9,17 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
 /**
  * La classe {@code TrackingScreenGUI} rappresenta la schermata di tracking dell'applicazione.
  * Gli utenti autenticati possono visualizzare la lista dei pacchi associati a loro e
@@ -29,14 +31,25 @@ import java.util.Map;
  * <p>La schermata di tracking si interfaccia con il {@link Mediator} attraverso la classe {@link Destinatario}
  * per recuperare lo stato attuale di una spedizione.
  *
+ * <p>La lista dei pacchi si aggiorna da sola: la schermata è iscritta ai cambi di stato dei colli del destinatario
+ * tramite una {@link CodaTransizioni}, che li consegna all'Event Dispatch Thread a blocchi, e ridisegna le righe
+ * visibili e lo stato della spedizione tracciata. I colli sono mostrati tramite un {@link ModelloListaColli}, che non
+ * li copia, per cui la schermata si apre in tempo costante qualunque sia il numero di colli del destinatario.
+ *
  * @see JFrame
  * @see Destinatario
  * @see Mediator
  */
 public class TrackingScreenGUI extends JFrame {
+    private static final int CAPACITA_CODA = 4096; //colli distinti in attesa oltre i quali si ricarica tutta la lista
+    private static final int COLLI_PER_PAGINA = 256;
+
     private Destinatario destinatario;
     private JTextField trackingField;
     private JTextArea statusArea;
+    private ModelloListaColli listModel;
+    private CodaTransizioni codaTransizioni;
+    private String codiceTracciato; //ultimo codice tracciato dall'utente
 
     /**
      * Costruisce una nuova schermata di tracking. Configura l'aspetto e la disposizione
@@ -61,17 +74,26 @@ public class TrackingScreenGUI extends JFrame {
         setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
         setLayout(new BorderLayout());
         JList<Collo> colloList = new JList<>();
-        DefaultListModel<Collo> listModel = new DefaultListModel<>();
 
-        List<Collo> colli = destinatario.getColliAssociati();
-        for (Collo collo : colli) {
-            listModel.addElement(collo);
-        }
+        //l'iscrizione precede la creazione del modello, così che nessun cambio di stato vada perso
+        codaTransizioni = new CodaTransizioni(CAPACITA_CODA, SwingUtilities::invokeLater, this::applicaTransizioni);
+        destinatario.iscrivi(codaTransizioni);
+        listModel = new ModelloListaColli(destinatario, COLLI_PER_PAGINA);
 
         colloList.setModel(listModel);
+        colloList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                //la riga è memorizzata nel collo per la fase corrente, il disegno non compone stringhe
+                return super.getListCellRendererComponent(list, ((Collo) value).getRiga(), index, isSelected, cellHasFocus);
+            }
+        });
         JScrollPane scrollPane = new JScrollPane(colloList);
         colloList.setBackground((new Color(218, 224, 224)));
         colloList.setFont(new Font("Rockwell Extra Bold", Font.BOLD, 15));
+        //con righe di dimensione fissa la lista non misura tutti i colli per calcolare la propria dimensione
+        colloList.setFixedCellHeight(colloList.getFontMetrics(colloList.getFont()).getHeight() + 2);
+        colloList.setFixedCellWidth(1000);
         colloList.setForeground(new Color(4, 18, 64));
         add(scrollPane);
 
@@ -117,6 +139,7 @@ public class TrackingScreenGUI extends JFrame {
              */
             @Override
             public void windowClosing(WindowEvent e) {
+                destinatario.disiscrivi(codaTransizioni);
                 shutdown();
                 System.exit(0);
             }
@@ -137,15 +160,40 @@ public class TrackingScreenGUI extends JFrame {
      */
     private void tracciaCollo() {
         String trackingId = trackingField.getText();
+        codiceTracciato = trackingId;
         statusArea.setText(destinatario.tracciaCollo(trackingId));
     }
+
+    /**
+     * Applica un blocco di cambi di stato consegnato dalla {@link CodaTransizioni} sull'Event Dispatch Thread.
+     * @param colli i colli che hanno cambiato stato o sono stati aggiunti.
+     * @param completo true se vanno ricaricati tutti i colli del destinatario.
+     */
+    private void applicaTransizioni(Set<Collo> colli, boolean completo) {
+        listModel.aggiorna(); //la lista ridisegna solo le righe visibili
+        if (codiceTracciato == null) {
+            return;
+        }
+        if (completo) {
+            statusArea.setText(destinatario.tracciaCollo(codiceTracciato));
+            return;
+        }
+        for (Collo collo : colli) {
+            if (collo.getCodiceSpedizione().equals(codiceTracciato)) {
+                //il collo consegnato dalla coda è del destinatario: il suo stato non richiede un'altra ricerca
+                statusArea.setText(collo.stampaStato());
+                break;
+            }
+        }
+    }
     /**
      * Questo metodo viene invocato quando la finestra di tracking viene chiusa. Si occupa
-     * di spegnere (shutdown) tutti i corrieri prima di terminare l'applicazione.
+     * di spegnere (shutdown) tutti i corrieri e lo schedulatore degli stati prima di terminare l'applicazione.
      */
     private void shutdown() {
         FileManager fileManager = DataSingleton.getInstance().getFileManager();
         Map<String, Corriere> corriereMap = fileManager.getCorriereMap();
         for (Corriere c : corriereMap.values()) c.shutdown();
+        SchedulatoreStati.getInstance().shutdown();
     }
 }
@@ -2,15 +2,19 @@
  * La classe Veicolo implementa l'interfaccia 'GestoreColli' e rappresenta un veicolo utilizzato per il trasporto dei colli.
  * Contiene informazioni come il codice del veicolo, il tipo, la capienza del container, il carico corrente del veicolo e il
  * successivo gestore di colli della catena della responsabilità {@link GestoreColli}.
+ * Il numero di veicoli interpellati da ogni ricerca lungo la catena viene registrato nelle {@link Metriche}.
  * @see GestoreColli
  * @author Mimmo
  */
 public class Veicolo implements GestoreColli {
+    private static final Istogramma PASSI_CATENA = Metriche.getInstance().istogramma("catena.passi", "veicoli");
+
     private String codice;
     private TipoVeicolo tipo;
     private int capienzaContainer;
-    private int caricoCorrente;
+    private volatile int caricoCorrente; //modificato durante il caricamento, letto da altri thread
     private GestoreColli successivo;
+    private int idAssegnazione = -1; //identificativo nel RegistroAssegnazioni del corriere
     Corriere corriere;
 
     /**
@@ -45,6 +49,15 @@ public class Veicolo implements GestoreColli {
         this.successivo = gestoreColli;
     }
 
+    /**
+     * Restituisce il prossimo gestore nella catena di responsabilità.
+     * @return successivo il gestore successivo, oppure null se il veicolo è l'ultimo della catena.
+     */
+    @Override
+    public GestoreColli getSuccessivo() {
+        return successivo;
+    }
+
     /**
      * Restituisce la capienza del container del Veicolo.
      * @return capienzaContainer
@@ -63,6 +76,8 @@ public class Veicolo implements GestoreColli {
      * la richiesta viene passata al veicolo successivo.
      * Se non esistono altri veicoli nella catena e il veicolo corrente non può accettare il collo,
      * la funzione ritorna false.
+     * La catena viene percorsa con un ciclo anziché con chiamate ricorsive, così che una flotta di migliaia
+     * di veicoli non possa esaurire lo stack.
      *
      *
      * @param collo Il collo da inserire.
@@ -72,15 +87,55 @@ public class Veicolo implements GestoreColli {
 
     @Override
     public boolean puoEssereInserito(Collo collo) {
+        int passi = 0;
+        for (GestoreColli gestore = this; gestore != null; gestore = gestore.getSuccessivo()) {
+            passi++;
+            if (gestore.inserisciSeCapiente(collo)) {
+                registraPassi(passi);
+                return true;
+            }
+        }
+        registraPassi(passi);
+        return false;
+    }
+
+    //numero di veicoli della catena interpellati da un inserimento
+    static void registraPassi(int passi) {
+        if (Metriche.ABILITATE) {
+            PASSI_CATENA.registra(passi);
+        }
+    }
+
+    /**
+     * Inserisce il collo nel veicolo corrente se ha spazio sufficiente.
+     * @param collo Il collo da inserire.
+     * @return true se il collo è stato inserito in questo veicolo, false altrimenti.
+     */
+    @Override
+    public boolean inserisciSeCapiente(Collo collo) {
         if (collo.getPeso() + caricoCorrente <= capienzaContainer) {
-            caricoCorrente += collo.getPeso();
-            corriere.inserisciInMappa(collo, this);
+            carica(collo);
             return true;
-        } else if (successivo != null) {
-            return successivo.puoEssereInserito(collo);
-        } else {
-            return false;
         }
+        return false;
+    }
+
+    /**
+     * Inserisce il collo nel veicolo, senza interpellare la catena di responsabilità.
+     * Il chiamante deve aver verificato che il veicolo abbia capacità residua sufficiente.
+     * @param collo Il collo da inserire.
+     */
+    public void carica(Collo collo) {
+        caricoCorrente += collo.getPeso();
+        corriere.inserisciInMappa(collo, this);
+    }
+
+    /**
+     * Restituisce la capacità ancora disponibile nel container del veicolo.
+     * @return la differenza tra la capienza del container e il carico corrente.
+     */
+    public int getCapacitaResidua() {
+        return capienzaContainer - caricoCorrente;
     }
 
     @Override
@@ -102,4 +157,36 @@ public class Veicolo implements GestoreColli {
     public String getCodice() {
         return codice;
     }
+
+    /**
+     * Restituisce il tipo del veicolo.
+     * @return tipo
+     */
+    public TipoVeicolo getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Restituisce il carico corrente del veicolo.
+     * @return caricoCorrente
+     */
+    public int getCaricoCorrente() {
+        return caricoCorrente;
+    }
+
+    int getIdAssegnazione() {
+        return idAssegnazione;
+    }
+
+    void setIdAssegnazione(int idAssegnazione) {
+        this.idAssegnazione = idAssegnazione;
+    }
+
+    /**
+     * Ripristina il carico corrente del veicolo, ad esempio durante la lettura di uno snapshot.
+     * @param caricoCorrente il carico da ripristinare.
+     */
+    void ripristinaCarico(int caricoCorrente) {
+        this.caricoCorrente = caricoCorrente;
+    }
 }
@@ -2,10 +2,15 @@ import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Font;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 /**
  * La classe {@code WelcomeScreenGUI} rappresenta la schermata di benvenuto
  * dell'applicazione. Questa schermata fornisce un'interfaccia grafica iniziale
@@ -15,12 +20,23 @@ import java.util.Map;
  * e viene mostrata la schermata di login. Durante questa transizione, lo stato dei
  * colli associati a ciascun corriere viene anche aggiornato.
  *
+ * <p>I dati vengono caricati in background mentre la schermata è visibile: una barra ne mostra
+ * l'avanzamento, letto periodicamente da {@link DataSingleton#getAvanzamento()}. Se l'utente continua
+ * prima che il caricamento sia terminato, la schermata di login viene aperta al suo completamento,
+ * senza bloccare l'Event Dispatch Thread.
+ *
  * @see JFrame
  * @see FileManager
  * @see DataSingleton
  * @see LoginScreenGUI
  */
 public class WelcomeScreenGUI extends JFrame {
+    private static final int INTERVALLO_AVANZAMENTO = 100; //millisecondi tra due aggiornamenti della barra
+
+    private final JButton continueButton;
+    private final JProgressBar progressBar;
+    private final Timer timerAvanzamento;
+
     public WelcomeScreenGUI() {
         setTitle("BENVENUTO!");
         setSize(600, 550);
@@ -34,12 +50,23 @@ public class WelcomeScreenGUI extends JFrame {
         JLabel backgroundLabel = new JLabel(backgroundIcon);
         backgroundLabel.setLayout(new BorderLayout());
 
-        JButton continueButton = new JButton("CLICCA QUI PER CONTINUARE . . .");
+        continueButton = new JButton("CLICCA QUI PER CONTINUARE . . .");
         continueButton.addActionListener(e -> onContinue());
-        backgroundLabel.add(continueButton, BorderLayout.SOUTH);
         continueButton.setBackground(new Color(218, 224, 224));
         continueButton.setForeground(Color.BLACK);
         continueButton.setFont(new Font("Rockwell Extra Bold", Font.BOLD, 15));
+
+        //barra di avanzamento del caricamento dei dati
+        progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+        progressBar.setFont(new Font("Arial", Font.BOLD, 12));
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(progressBar, BorderLayout.NORTH);
+        bottomPanel.add(continueButton, BorderLayout.SOUTH);
+        backgroundLabel.add(bottomPanel, BorderLayout.SOUTH);
+        timerAvanzamento = new Timer(INTERVALLO_AVANZAMENTO, e -> aggiornaAvanzamento());
+        timerAvanzamento.start();
+        aggiornaAvanzamento();
         // Aggiungi l'etichetta con l'immagine di sfondo alla finestra
         add(backgroundLabel);
         // Mostra la finestra
@@ -47,14 +74,52 @@ public class WelcomeScreenGUI extends JFrame {
         setVisible(true);
     }
 
+    private void aggiornaAvanzamento() {
+        AvanzamentoCaricamento avanzamento = DataSingleton.getAvanzamento();
+        AvanzamentoCaricamento.Fase fase = avanzamento.getFase();
+        if (DataSingleton.avvia().isDone()) {
+            timerAvanzamento.stop();
+            progressBar.setIndeterminate(false);
+            progressBar.setValue(progressBar.getMaximum());
+            progressBar.setString(DataSingleton.avvia().isCompletedExceptionally()
+                    ? "Errore durante il caricamento dei dati" : avanzamento.toString());
+            return;
+        }
+        long completati = 0;
+        long totali = 0;
+        if (fase == AvanzamentoCaricamento.Fase.MANIFEST) {
+            completati = avanzamento.getByteLetti();
+            totali = avanzamento.getByteTotali();
+        } else if (fase == AvanzamentoCaricamento.Fase.VEICOLI) {
+            completati = avanzamento.getCorrieriCaricati();
+            totali = avanzamento.getCorrieriTotali();
+        }
+        progressBar.setIndeterminate(totali == 0);
+        if (totali > 0) {
+            progressBar.setValue((int) (completati * progressBar.getMaximum() / totali));
+        }
+        progressBar.setString(avanzamento.toString());
+    }
+
     private void onContinue() {
-        FileManager fileManager = DataSingleton.getInstance().getFileManager();
-        Map<String, Corriere> corriereMap = fileManager.getCorriereMap();
-        for (Corriere c : corriereMap.values()) {
-            c.scheduleUpdate();
+        CompletableFuture<DataSingleton> caricamento = DataSingleton.avvia();
+        //disabilitato anche a caricamento concluso: un secondo clic prima del runnable sotto avvierebbe due volte gli aggiornamenti
+        continueButton.setEnabled(false);
+        if (!caricamento.isDone()) {
+            continueButton.setText("CARICAMENTO DATI IN CORSO . . .");
         }
-        dispose();
-        new LoginScreenGUI();
+        caricamento.whenComplete((dati, errore) -> SwingUtilities.invokeLater(() -> {
+            if (errore != null) {
+                continueButton.setEnabled(true);
+                continueButton.setText("CLICCA QUI PER CONTINUARE . . .");
+                JOptionPane.showMessageDialog(this, "Impossibile caricare i dati. ");
+                return;
+            }
+            dati.getFileManager().avviaAggiornamenti();
+            timerAvanzamento.stop();
+            dispose();
+            new LoginScreenGUI();
+        }));
     }
 
 }
@@ -0,0 +1,154 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+/**
+ * Verifica la riproduzione di {@link DiarioTransizioni} dopo un riavvio, lo scarto dei record incompleti o corrotti
+ * alla fine del file e la compattazione. I test sono eseguiti con {@code logistica.diario.compattazione} a 64 record.
+ */
+class DiarioTransizioniTest {
+    private static final int DIMENSIONE_INTESTAZIONE = 8;
+    private static final int DIMENSIONE_RECORD = 24;
+
+    @TempDir
+    Path cartella;
+
+    @Test
+    void riportaIColliAllUltimaFaseRegistrata() throws IOException, InterruptedException {
+        Path percorso = cartella.resolve("diario");
+        List<Collo> colli = colli(4);
+        DiarioTransizioni diario = new DiarioTransizioni(percorso, colli);
+        assertEquals(0, diario.riproduci());
+        diario.avvia();
+        avanza(diario, colli.get(0), FaseCollo.IN_TRANSITO, FaseCollo.IN_ENTRATA);
+        avanza(diario, colli.get(1), FaseCollo.IN_TRANSITO, FaseCollo.IN_ENTRATA, FaseCollo.IN_CONSEGNA, FaseCollo.CONSEGNATO);
+        avanza(diario, colli.get(2), FaseCollo.IN_TRANSITO);
+        diario.sincronizza();
+        diario.chiudi();
+
+        List<Collo> riavviati = colli(4);
+        DiarioTransizioni riaperto = new DiarioTransizioni(percorso, riavviati);
+        assertEquals(3, riaperto.riproduci());
+        riaperto.chiudi();
+        assertEquals(FaseCollo.IN_ENTRATA, riavviati.get(0).getFase());
+        assertEquals(FaseCollo.CONSEGNATO, riavviati.get(1).getFase());
+        assertEquals(FaseCollo.IN_TRANSITO, riavviati.get(2).getFase());
+        assertEquals(FaseCollo.RITIRO, riavviati.get(3).getFase());
+    }
+
+    @Test
+    void scartaIByteIncompletiAllaFine() throws IOException {
+        Path percorso = cartella.resolve("diario");
+        List<Collo> colli = colli(2);
+        DiarioTransizioni diario = new DiarioTransizioni(percorso, colli);
+        diario.riproduci();
+        avanza(diario, colli.get(0), FaseCollo.IN_TRANSITO);
+        avanza(diario, colli.get(1), FaseCollo.IN_TRANSITO, FaseCollo.IN_ENTRATA);
+        diario.chiudi(); //senza avvia: scrive i record in attesa alla chiusura
+        long integro = DIMENSIONE_INTESTAZIONE + 3L * DIMENSIONE_RECORD;
+        assertEquals(integro, Files.size(percorso));
+        Files.write(percorso, new byte[DIMENSIONE_RECORD - 5], StandardOpenOption.APPEND); //record interrotto
+
+        List<Collo> riavviati = colli(2);
+        DiarioTransizioni riaperto = new DiarioTransizioni(percorso, riavviati);
+        assertEquals(2, riaperto.riproduci());
+        riaperto.chiudi();
+        assertEquals(integro, Files.size(percorso));
+        assertEquals(FaseCollo.IN_TRANSITO, riavviati.get(0).getFase());
+        assertEquals(FaseCollo.IN_ENTRATA, riavviati.get(1).getFase());
+    }
+
+    @Test
+    void scartaIlRecordCorrottoEQuelliSuccessivi() throws IOException {
+        Path percorso = cartella.resolve("diario");
+        List<Collo> colli = colli(1);
+        DiarioTransizioni diario = new DiarioTransizioni(percorso, colli);
+        diario.riproduci();
+        avanza(diario, colli.get(0), FaseCollo.IN_TRANSITO, FaseCollo.IN_ENTRATA, FaseCollo.IN_CONSEGNA);
+        diario.chiudi();
+        try (FileChannel canale = FileChannel.open(percorso, StandardOpenOption.WRITE)) {
+            //altera il controllo del secondo record: il secondo e il terzo vanno scartati
+            canale.write(ByteBuffer.allocate(4).putInt(0, 0xDEADBEEF), DIMENSIONE_INTESTAZIONE + 2L * DIMENSIONE_RECORD - 4);
+        }
+
+        List<Collo> riavviati = colli(1);
+        DiarioTransizioni riaperto = new DiarioTransizioni(percorso, riavviati);
+        assertEquals(1, riaperto.riproduci());
+        riaperto.chiudi();
+        assertEquals(FaseCollo.IN_TRANSITO, riavviati.get(0).getFase());
+        assertEquals(DIMENSIONE_INTESTAZIONE + DIMENSIONE_RECORD, Files.size(percorso));
+    }
+
+    @Test
+    void compattaConUnRecordPerCollo() throws IOException {
+        Path percorso = cartella.resolve("diario");
+        List<Collo> colli = colli(5);
+        DiarioTransizioni diario = new DiarioTransizioni(percorso, colli);
+        diario.riproduci();
+        for (int giro = 0; giro < 25; giro++) {
+            for (int i = 0; i < 3; i++) {
+                diario.registra(colli.get(i)); //record ripetuti, scritti in un solo gruppo dopo avvia
+            }
+        }
+        avanza(diario, colli.get(0), FaseCollo.IN_TRANSITO);
+        avanza(diario, colli.get(1), FaseCollo.IN_TRANSITO, FaseCollo.IN_ENTRATA);
+        avanza(diario, colli.get(2), FaseCollo.IN_TRANSITO, FaseCollo.IN_ENTRATA, FaseCollo.IN_CONSEGNA, FaseCollo.CONSEGNATO);
+        diario.avvia();
+        diario.chiudi();
+        //un record per ciascuno dei tre colli che hanno lasciato il ritiro
+        assertEquals(DIMENSIONE_INTESTAZIONE + 3L * DIMENSIONE_RECORD, Files.size(percorso));
+        assertFalse(Files.exists(percorso.resolveSibling(percorso.getFileName() + ".tmp")));
+
+        List<Collo> riavviati = colli(5);
+        DiarioTransizioni riaperto = new DiarioTransizioni(percorso, riavviati);
+        assertEquals(3, riaperto.riproduci());
+        riaperto.chiudi();
+        assertEquals(FaseCollo.IN_TRANSITO, riavviati.get(0).getFase());
+        assertEquals(FaseCollo.IN_ENTRATA, riavviati.get(1).getFase());
+        assertEquals(FaseCollo.CONSEGNATO, riavviati.get(2).getFase());
+        assertEquals(FaseCollo.RITIRO, riavviati.get(3).getFase());
+    }
+
+    @Test
+    void contaIRecordRegistratiADiarioChiuso() throws IOException {
+        List<Collo> colli = colli(1);
+        DiarioTransizioni diario = new DiarioTransizioni(cartella.resolve("diario"), colli);
+        diario.riproduci();
+        diario.chiudi();
+        diario.registra(colli.get(0));
+        diario.registra(colli.get(0));
+        assertEquals(2, diario.getRecordPersi());
+    }
+
+    @Test
+    void rifiutaUnFileCheNonEUnDiario() throws IOException {
+        Path percorso = cartella.resolve("altro");
+        Files.writeString(percorso, "corriere,GLS\n");
+        assertThrows(IOException.class, () -> new DiarioTransizioni(percorso, List.of()));
+    }
+
+    //porta il collo attraverso le fasi indicate, registrando ogni transizione
+    private static void avanza(DiarioTransizioni diario, Collo collo, FaseCollo... fasi) {
+        for (FaseCollo fase : fasi) {
+            collo.setStato(fase.getStato());
+            diario.registra(collo);
+        }
+    }
+
+    private static List<Collo> colli(int numero) {
+        List<Collo> colli = new ArrayList<>();
+        for (int i = 0; i < numero; i++) {
+            colli.add(new Collo("C" + i, "mittente", null, 1, "S" + i));
+        }
+        return colli;
+    }
+}
@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/**
+ * Verifica che la ruota temporale di {@link SchedulatoreStati} avanzi ogni collo alla sua scadenza,
+ * anche quando il ritardo supera un giro completo della ruota.
+ */
+class SchedulatoreStatiTest {
+    private static final long TICK_MS = 10;
+    private static final int POSIZIONI = 8; //un giro della ruota dura 80 ms
+
+    private SchedulatoreStati schedulatore;
+
+    @BeforeEach
+    void creaSchedulatore() {
+        schedulatore = new SchedulatoreStati(2, TICK_MS, POSIZIONI);
+    }
+
+    @AfterEach
+    void terminaSchedulatore() {
+        schedulatore.shutdown();
+    }
+
+    @Test
+    void avanzaOgniColloAllaSuaScadenza() throws InterruptedException {
+        long[] ritardi = {30, 70, 150, 260};
+        CorriereRegistratore corriere = new CorriereRegistratore(ritardi.length);
+        long inizio = System.nanoTime();
+        for (int i = 0; i < ritardi.length; i++) {
+            schedulatore.pianifica(collo("C" + i), corriere, ritardi[i]);
+        }
+        assertTrue(corriere.avanzati.await(5, TimeUnit.SECONDS), "non tutti i colli sono stati avanzati");
+        for (int i = 0; i < ritardi.length; i++) {
+            long trascorsi = TimeUnit.NANOSECONDS.toMillis(corriere.istanti.get("C" + i) - inizio);
+            //anche quando il thread del tick recupera i tick persi
+            assertTrue(trascorsi >= ritardi[i],
+                    "collo C" + i + " avanzato dopo " + trascorsi + " ms invece di " + ritardi[i]);
+        }
+        assertTrue(corriere.istanti.get("C1") < corriere.istanti.get("C2"));
+        assertTrue(corriere.istanti.get("C2") < corriere.istanti.get("C3"));
+    }
+
+    @Test
+    void avanzaOgniColloUnaSolaVolta() throws InterruptedException {
+        int colli = 2000;
+        CorriereRegistratore corriere = new CorriereRegistratore(colli);
+        for (int i = 0; i < colli; i++) {
+            schedulatore.pianifica(collo("C" + i), corriere, i % 200);
+        }
+        assertTrue(corriere.avanzati.await(5, TimeUnit.SECONDS), "non tutti i colli sono stati avanzati");
+        Thread.sleep(4 * POSIZIONI * TICK_MS); //qualche giro della ruota, per cogliere avanzamenti ripetuti
+        assertEquals(colli, corriere.istanti.size());
+        assertEquals(colli, corriere.chiamate.sum());
+    }
+
+    private static Collo collo(String codiceSpedizione) {
+        return new Collo(codiceSpedizione, "mittente", null, 1, codiceSpedizione);
+    }
+
+    //registra l'istante di avanzamento di ogni collo senza ripianificarlo
+    private static class CorriereRegistratore extends Corriere {
+        private final Map<String, Long> istanti = new ConcurrentHashMap<>();
+        private final LongAdder chiamate = new LongAdder();
+        private final CountDownLatch avanzati;
+
+        private CorriereRegistratore(int colli) {
+            super("test");
+            this.avanzati = new CountDownLatch(colli);
+        }
+
+        @Override
+        public boolean avanzaCollo(Collo c) {
+            chiamate.increment();
+            if (istanti.putIfAbsent(c.getCodiceSpedizione(), System.nanoTime()) == null) {
+                avanzati.countDown();
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/**
+ * Verifica che uno snapshot scritto da {@link FileManager#salvaSnapshot(String)} e riletto da
+ * {@link FileManager#caricaSnapshot(String)} riproduca destinatari, corrieri, veicoli, stato dei colli e
+ * assegnazioni, e che venga ignorato quando il file di testo da cui proviene cambia.
+ */
+class SnapshotBinarioTest {
+    private static final String MANIFEST = String.join("\n",
+            "corriere,GLS",
+            "veicolo,6705B6D5,FURGONE,774,GLS",
+            "veicolo,7CFAD856,CAMION,641,GLS",
+            "veicolo,842AB139,FURGONE,111,GLS",
+            "destinatario,Mario,Rossi,Via Roma 17,mariorossi@gmail.com,a12345",
+            "destinatario,Jessica,Rana,Via Napoli 221,jessica@gmail.com,e12345",
+            "collo,GLS01,Alfredo,jessica@gmail.com,200,10937660",
+            "collo,GLS02,Mario,mariorossi@gmail.com,700,10837660",
+            "collo,GLS03,Carlo,mariorossi@gmail.com,600,10936660",
+            "corriere,BRT",
+            "veicolo,AB12CD34,AUTOCARRO,451,BRT",
+            "collo,BRT01,Giovanna,jessica@gmail.com,450,11137660",
+            "collo,BRT02,Angelo,mariorossi@gmail.com,300,10943650",
+            "");
+
+    @TempDir
+    Path cartella;
+
+    @Test
+    void loSnapshotRiproduceIDatiCaricati() throws IOException {
+        Path manifest = cartella.resolve("manifest.txt");
+        Path snapshot = cartella.resolve("manifest.snap");
+        Files.writeString(manifest, MANIFEST);
+        FileManager originale = new FileManager(manifest.toString(), new CentroDiSmistamento());
+        originale.caricaDatiDaFile();
+        int indice = 0;
+        for (Collo c : originale.getColli()) {
+            c.setStato(FaseCollo.daOrdinale(indice++ % FaseCollo.numeroFasi()).getStato());
+        }
+        originale.salvaSnapshot(snapshot.toString());
+
+        CentroDiSmistamento centro = new CentroDiSmistamento();
+        FileManager ripristinato = new FileManager(manifest.toString(), centro);
+        assertTrue(ripristinato.caricaSnapshot(snapshot.toString()));
+        assertEquals(descrivi(originale), descrivi(ripristinato));
+
+        Destinatario mario = ripristinato.getDestinatarioMap().get("mariorossi@gmail.com");
+        assertNotNull(mario);
+        assertTrue(mario.getCredenziale().verifica("a12345".toCharArray()));
+        assertFalse(mario.getCredenziale().verifica("e12345".toCharArray()));
+        for (Collo c : ripristinato.getColli()) {
+            assertEquals(c.stampaStato(), c.getDestinatario().tracciaCollo(c.getCodiceSpedizione()));
+        }
+    }
+
+    @Test
+    void loSnapshotDiUnFileModificatoVieneIgnorato() throws IOException {
+        Path manifest = cartella.resolve("manifest.txt");
+        Path snapshot = cartella.resolve("manifest.snap");
+        Files.writeString(manifest, MANIFEST);
+        FileManager originale = new FileManager(manifest.toString(), new CentroDiSmistamento());
+        originale.caricaDatiDaFile();
+        originale.salvaSnapshot(snapshot.toString());
+        Files.writeString(manifest, "collo,BRT03,Marianna,jessica@gmail.com,10,42389536\n", StandardOpenOption.APPEND);
+
+        FileManager ripristinato = new FileManager(manifest.toString(), new CentroDiSmistamento());
+        assertFalse(ripristinato.caricaSnapshot(snapshot.toString()));
+        assertFalse(ripristinato.getColli().iterator().hasNext());
+    }
+
+    //descrizione testuale e ordinata dei dati, confrontabile tra due FileManager
+    private static List<String> descrivi(FileManager fileManager) {
+        List<String> righe = new ArrayList<>();
+        for (Destinatario d : fileManager.getDestinatarioMap().values()) {
+            righe.add(String.join(",", "destinatario", d.getNome(), d.getCognome(), d.getIndirizzo(), d.getEmail()));
+        }
+        for (Corriere corriere : fileManager.getCorriereMap().values()) {
+            righe.add("corriere," + corriere.getNome());
+            for (Veicolo v : corriere.getVeicoli()) {
+                righe.add(String.join(",", "veicolo", v.getCodice(), v.getTipo().name(),
+                        String.valueOf(v.getCapienzaContainer()), String.valueOf(v.getCaricoCorrente())));
+            }
+            for (Collo c : corriere.getColli()) {
+                righe.add(descrivi(c, List.of()));
+            }
+            RegistroAssegnazioni assegnazioni = corriere.getRegistroAssegnazioni();
+            for (int i = 0; i < assegnazioni.numeroColli(); i++) {
+                Collo c = assegnazioni.getCollo(i);
+                righe.add(descrivi(c, assegnazioni.getVeicoli(c)));
+            }
+        }
+        righe.sort(null);
+        return righe;
+    }
+
+    private static String descrivi(Collo c, List<Veicolo> veicoli) {
+        StringBuilder riga = new StringBuilder(String.join(",", "collo", c.getCodice(), c.getMittente(),
+                c.getDestinatario().getEmail(), String.valueOf(c.getPeso()), c.getCodiceSpedizione(), c.getFase().name()));
+        for (Veicolo v : veicoli) {
+            riga.append(',').append(v.getCodice());
+        }
+        return riga.toString();
+    }
+}
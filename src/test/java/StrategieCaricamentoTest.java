@@ -0,0 +1,179 @@
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/**
+ * Verifica il posizionamento dei colli di {@link FirstFitDecrescente} e {@link BestFitDecrescente}, confrontando
+ * {@link AlberoCapacitaResidue} e {@link IndiceCapacitaResidue} con una scansione lineare dei veicoli.
+ */
+class StrategieCaricamentoTest {
+
+    @Test
+    void firstFitSceglieIlPrimoVeicoloCapiente() {
+        Corriere corriere = new Corriere("test");
+        List<Veicolo> veicoli = veicoli(corriere, 10, 5, 8);
+        List<Collo> colli = colli(7, 6, 4, 3, 3);
+        List<Collo> nonGestiti = new FirstFitDecrescente().carica(colli, veicoli);
+        assertEquals(List.of(colli.get(4)), nonGestiti);
+        assertEquals(List.of(veicoli.get(0)), corriere.getRegistroAssegnazioni().getVeicoli(colli.get(0)));
+        assertEquals(List.of(veicoli.get(2)), corriere.getRegistroAssegnazioni().getVeicoli(colli.get(1)));
+        assertEquals(List.of(veicoli.get(1)), corriere.getRegistroAssegnazioni().getVeicoli(colli.get(2)));
+        assertEquals(List.of(veicoli.get(0)), corriere.getRegistroAssegnazioni().getVeicoli(colli.get(3)));
+        assertEquals(10, veicoli.get(0).getCaricoCorrente());
+        assertEquals(4, veicoli.get(1).getCaricoCorrente());
+        assertEquals(6, veicoli.get(2).getCaricoCorrente());
+    }
+
+    @Test
+    void bestFitSceglieIlVeicoloConMinoreResiduo() {
+        Corriere corriere = new Corriere("test");
+        List<Veicolo> veicoli = veicoli(corriere, 10, 5, 8);
+        List<Collo> colli = colli(7, 6, 4, 3, 3);
+        List<Collo> nonGestiti = new BestFitDecrescente().carica(colli, veicoli);
+        //7 -> 8 (residuo 1), 6 -> 10 (residuo 4), 4 -> 10 (residuo 0), 3 -> 5 (residuo 2), 3 non entra
+        assertEquals(List.of(colli.get(4)), nonGestiti);
+        assertEquals(List.of(veicoli.get(2)), corriere.getRegistroAssegnazioni().getVeicoli(colli.get(0)));
+        assertEquals(List.of(veicoli.get(0)), corriere.getRegistroAssegnazioni().getVeicoli(colli.get(1)));
+        assertEquals(List.of(veicoli.get(0)), corriere.getRegistroAssegnazioni().getVeicoli(colli.get(2)));
+        assertEquals(List.of(veicoli.get(1)), corriere.getRegistroAssegnazioni().getVeicoli(colli.get(3)));
+    }
+
+    @Test
+    void alberoTrovaIlPrimoVeicoloCapienteComeUnaScansione() {
+        Random casuale = new Random(42);
+        for (int prova = 0; prova < 50; prova++) {
+            Corriere corriere = new Corriere("test");
+            int[] capienze = new int[1 + casuale.nextInt(37)]; //anche numeri di veicoli che non sono potenze di due
+            for (int i = 0; i < capienze.length; i++) {
+                capienze[i] = 1 + casuale.nextInt(100);
+            }
+            List<Veicolo> veicoli = veicoli(corriere, capienze);
+            AlberoCapacitaResidue albero = new AlberoCapacitaResidue(veicoli);
+            for (int inserimento = 0; inserimento < 200; inserimento++) {
+                int peso = 1 + casuale.nextInt(60);
+                int atteso = -1;
+                for (int i = 0; i < veicoli.size() && atteso < 0; i++) {
+                    if (veicoli.get(i).getCapacitaResidua() >= peso) {
+                        atteso = i;
+                    }
+                }
+                int indice = albero.primoCapiente(peso);
+                assertEquals(atteso, indice, "peso " + peso);
+                if (indice >= 0) {
+                    Veicolo veicolo = veicoli.get(indice);
+                    veicolo.carica(collo(peso));
+                    albero.aggiorna(indice, veicolo.getCapacitaResidua());
+                }
+            }
+        }
+    }
+
+    @Test
+    void indiceSceglieLaMinimaCapacitaResiduaSufficiente() {
+        Random casuale = new Random(7);
+        for (int prova = 0; prova < 50; prova++) {
+            Corriere corriere = new Corriere("test");
+            int[] capienze = new int[1 + casuale.nextInt(37)];
+            for (int i = 0; i < capienze.length; i++) {
+                capienze[i] = 1 + casuale.nextInt(100);
+            }
+            List<Veicolo> veicoli = veicoli(corriere, capienze);
+            IndiceCapacitaResidue indice = new IndiceCapacitaResidue();
+            for (Veicolo v : veicoli) {
+                indice.aggiungi(v);
+            }
+            for (int inserimento = 0; inserimento < 200; inserimento++) {
+                int peso = 1 + casuale.nextInt(60);
+                int minimoResiduo = Integer.MAX_VALUE;
+                int[] residui = new int[veicoli.size()];
+                for (int i = 0; i < veicoli.size(); i++) {
+                    residui[i] = veicoli.get(i).getCapacitaResidua();
+                    if (residui[i] >= peso) {
+                        minimoResiduo = Math.min(minimoResiduo, residui[i]);
+                    }
+                }
+                Collo collo = collo(peso);
+                boolean inserito = indice.inserisci(collo);
+                assertEquals(minimoResiduo != Integer.MAX_VALUE, inserito, "peso " + peso);
+                if (inserito) {
+                    Veicolo scelto = corriere.getRegistroAssegnazioni().getVeicoloPrimario(collo);
+                    assertEquals(minimoResiduo, residui[veicoli.indexOf(scelto)], "peso " + peso);
+                    assertEquals(minimoResiduo - peso, scelto.getCapacitaResidua());
+                }
+            }
+        }
+    }
+
+    @Test
+    void leStrategieNonSuperanoLaCapienzaEGestisconoOgniCollo() {
+        Random casuale = new Random(3);
+        for (StrategiaCaricamento strategia : List.of(new FirstFitDecrescente(), new BestFitDecrescente())) {
+            Corriere corriere = new Corriere("test");
+            int[] capienze = new int[25];
+            for (int i = 0; i < capienze.length; i++) {
+                capienze[i] = 50 + casuale.nextInt(200);
+            }
+            List<Veicolo> veicoli = veicoli(corriere, capienze);
+            veicoli.sort(Comparator.comparingInt(Veicolo::getCapienzaContainer).reversed());
+            List<Collo> colli = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                colli.add(collo(1 + casuale.nextInt(120)));
+            }
+            colli.sort(Comparator.comparingInt(Collo::getPeso).reversed());
+            List<Collo> nonGestiti = strategia.carica(colli, veicoli);
+            int caricati = 0;
+            for (Collo c : colli) {
+                List<Veicolo> assegnati = corriere.getRegistroAssegnazioni().getVeicoli(c);
+                if (nonGestiti.contains(c)) {
+                    assertTrue(assegnati.isEmpty());
+                    for (Veicolo v : veicoli) {
+                        assertTrue(v.getCapacitaResidua() < c.getPeso(), "collo scartato con un veicolo capiente");
+                    }
+                } else {
+                    assertEquals(1, assegnati.size());
+                    caricati += c.getPeso();
+                }
+            }
+            int carico = 0;
+            for (Veicolo v : veicoli) {
+                assertTrue(v.getCaricoCorrente() <= v.getCapienzaContainer());
+                carico += v.getCaricoCorrente();
+            }
+            assertEquals(caricati, carico);
+        }
+    }
+
+    @Test
+    void nessunVeicoloCapiente() {
+        IndiceCapacitaResidue indice = new IndiceCapacitaResidue();
+        assertFalse(indice.inserisci(collo(1)));
+        Corriere corriere = new Corriere("test");
+        AlberoCapacitaResidue albero = new AlberoCapacitaResidue(veicoli(corriere, 3));
+        assertEquals(-1, albero.primoCapiente(4));
+        assertEquals(0, albero.primoCapiente(3));
+    }
+
+    private static List<Veicolo> veicoli(Corriere corriere, int... capienze) {
+        List<Veicolo> veicoli = new ArrayList<>();
+        for (int i = 0; i < capienze.length; i++) {
+            veicoli.add(new Veicolo("V" + i, TipoVeicolo.FURGONE, capienze[i], corriere));
+        }
+        return veicoli;
+    }
+
+    private static List<Collo> colli(int... pesi) {
+        List<Collo> colli = new ArrayList<>();
+        for (int peso : pesi) {
+            colli.add(collo(peso));
+        }
+        return colli;
+    }
+
+    private static Collo collo(int peso) {
+        return new Collo("C", "mittente", null, peso, "S");
+    }
+}